@@ -19,9 +19,21 @@ CREATE TABLE IF NOT EXISTS inventory (
     name VARCHAR(100) NOT NULL,
     price DOUBLE NOT NULL,
     available BOOLEAN DEFAULT TRUE,
-    stock INT DEFAULT 0
+    stock INT DEFAULT 0,
+    -- Nombre en minusculas para buscar sin distinguir mayusculas por indice.
+    -- El indice no es unico (igual que en MongoDB): las bases de datos existentes
+    -- pueden tener nombres que solo difieren en mayusculas y la busqueda devuelve
+    -- el de menor id. model.Product mapea la columna y el indice, asi que los
+    -- modos update/cached de Hibernate los crean igual que este script.
+    name_normalized VARCHAR(100) GENERATED ALWAYS AS (LOWER(name)) STORED,
+    KEY idx_inventory_name_normalized (name_normalized)
 );
 
+-- Para bases de datos creadas antes de name_normalized (no falla con duplicados):
+-- ALTER TABLE inventory
+--     ADD COLUMN name_normalized VARCHAR(100) GENERATED ALWAYS AS (LOWER(name)) STORED,
+--     ADD KEY idx_inventory_name_normalized (name_normalized);
+
 -- =====================================================
 -- Tabla: historical_inventory
 -- Almacena snapshots históricos del inventario
@@ -36,6 +48,24 @@ CREATE TABLE IF NOT EXISTS historical_inventory (
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- =====================================================
+-- Tabla: id_generators
+-- Contadores de ids por bloques usados por Hibernate (ProductHistory)
+-- para poder agrupar los INSERT del historico en lotes
+-- =====================================================
+CREATE TABLE IF NOT EXISTS id_generators (
+    name VARCHAR(64) PRIMARY KEY,
+    next_val BIGINT NOT NULL
+);
+
+-- El contador del historico arranca por encima de los ids ya existentes.
+-- Con el optimizador pooled el valor guardado es el final del siguiente bloque,
+-- de ahi el + 500 (ProductHistory.ID_ALLOCATION_SIZE). El arranque de Hibernate
+-- y cada exportacion JDBC lo vuelven a ajustar (utils.HistoryIdGenerator), y el
+-- DAO JDBC reserva sus ids de este mismo contador en lugar del AUTO_INCREMENT.
+INSERT IGNORE INTO id_generators (name, next_val)
+SELECT 'historical_inventory', COALESCE(MAX(id), 0) + 500 FROM historical_inventory;
+
 -- =====================================================
 -- Tabla: employee
 -- Almacena los empleados para autenticación
@@ -0,0 +1,127 @@
+package dao;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import main.Logable;
+import utils.CredentialCache;
+
+/**
+ * Servicio de autenticacion compartido por todo el proceso.
+ *
+ * Reutiliza una unica instancia del DAO de login (ObjectDB por defecto, ver
+ * {@link DaoFactory#createLoginDao()}); cada DAO toma y devuelve su conexion
+ * (o EntityManager del pool) en cada busqueda, asi que el servicio no retiene
+ * ninguna entre intentos de login. Las credenciales validadas se guardan (como hash con sal) en una
+ * {@link CredentialCache}, asi que un login repetido dentro de su caducidad no
+ * llega a la base de datos; cualquier escritura de empleados anotada con
+ * {@link CredentialCache#recordEmployeeWrite()} las descarta. Solo se detectan
+ * las escrituras de este proceso: un cambio de contrasena hecho fuera de la
+ * aplicacion no se aplica hasta que caduca la entrada (shop.login.cache.ttlSeconds).
+ * Registra el numero de intentos y su latencia.
+ */
+public final class AuthenticationService implements Logable {
+
+	private static AuthenticationService instance;
+
+	private final Dao loginDao;
+	private final CredentialCache credentialCache;
+
+	private final LongAdder attempts = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+	AuthenticationService(Dao loginDao) {
+		this(loginDao, new CredentialCache());
+	}
+
+	AuthenticationService(Dao loginDao, CredentialCache credentialCache) {
+		this.loginDao = loginDao;
+		this.credentialCache = credentialCache;
+	}
+
+	/**
+	 * @return servicio del proceso, creado con el DAO de login configurado
+	 */
+	public static synchronized AuthenticationService getInstance() {
+		if (instance == null) {
+			instance = new AuthenticationService(DaoFactory.createLoginDao());
+		}
+		return instance;
+	}
+
+	/**
+	 * @param user número de empleado
+	 * @param password contraseña introducida
+	 * @return true si las credenciales son correctas
+	 */
+	@Override
+	public boolean login(int user, String password) {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			success = credentialCache.verify(user, password);
+			if (!success) {
+				// el contador se toma antes de leer para no cachear un registro ya desfasado
+				long employeeWrites = CredentialCache.getEmployeeWrites();
+				if (loginDao.getEmployee(user, password) != null) {
+					credentialCache.store(user, password, employeeWrites);
+					success = true;
+				}
+			}
+			return success;
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			attempts.increment();
+			if (!success) {
+				failures.increment();
+			}
+			totalNanos.add(elapsed);
+			maxNanos.accumulate(elapsed);
+		}
+	}
+
+	/**
+	 * Descarta la credencial cacheada de un empleado. Debe llamarse al modificar
+	 * o eliminar su registro para que el cambio se aplique en el siguiente login;
+	 * tambien anota la escritura para que un login en curso no vuelva a guardar
+	 * la credencial anterior.
+	 */
+	public void invalidate(int employeeId) {
+		CredentialCache.recordEmployeeWrite();
+		credentialCache.invalidate(employeeId);
+	}
+
+	public void invalidateAll() {
+		CredentialCache.recordEmployeeWrite();
+		credentialCache.invalidateAll();
+	}
+
+	public long getAttempts() {
+		return attempts.sum();
+	}
+
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	/**
+	 * @return latencia media de los intentos de login en milisegundos (0 si no hay)
+	 */
+	public double getAverageMillis() {
+		long count = attempts.sum();
+		return count == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / count;
+	}
+
+	public double getMaxMillis() {
+		return maxNanos.get() / 1_000_000.0;
+	}
+
+	public String getMetricsReport() {
+		return "Logins: " + getAttempts() + " intentos, " + getFailures() + " fallidos, media "
+				+ String.format("%.2f", getAverageMillis()) + " ms, maximo " + String.format("%.2f", getMaxMillis())
+				+ " ms, cache " + credentialCache.getHits() + " aciertos / " + credentialCache.getMisses()
+				+ " fallos";
+	}
+}
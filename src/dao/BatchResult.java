@@ -0,0 +1,95 @@
+package dao;
+
+import java.util.Arrays;
+
+/**
+ * Resultado de una operación masiva del DAO.
+ * Indica, para cada elemento enviado (en el mismo orden), si se aplicó o el motivo del fallo.
+ *
+ * @author Marc Muntané Clarà
+ * @version 2.0
+ */
+public class BatchResult {
+
+	/** Estado de cada elemento: true si se aplicó */
+	private final boolean[] applied;
+
+	/** Motivo del fallo de cada elemento (null si se aplicó) */
+	private final String[] errors;
+
+	/**
+	 * Crea un resultado con todos los elementos pendientes (no aplicados).
+	 *
+	 * @param size número de elementos de la operación
+	 */
+	public BatchResult(int size) {
+		this.applied = new boolean[size];
+		this.errors = new String[size];
+	}
+
+	public void markApplied(int index) {
+		applied[index] = true;
+		errors[index] = null;
+	}
+
+	public void markAllApplied() {
+		Arrays.fill(applied, true);
+		Arrays.fill(errors, null);
+	}
+
+	public void markFailed(int index, String reason) {
+		applied[index] = false;
+		errors[index] = reason;
+	}
+
+	public void markAllFailed(String reason) {
+		Arrays.fill(applied, false);
+		Arrays.fill(errors, reason);
+	}
+
+	/**
+	 * @return número de elementos de la operación
+	 */
+	public int size() {
+		return applied.length;
+	}
+
+	/**
+	 * @param index posición del elemento en la lista enviada
+	 * @return true si el elemento se aplicó
+	 */
+	public boolean isApplied(int index) {
+		return applied[index];
+	}
+
+	/**
+	 * @param index posición del elemento en la lista enviada
+	 * @return motivo del fallo, o null si se aplicó
+	 */
+	public String getError(int index) {
+		return errors[index];
+	}
+
+	public int getAppliedCount() {
+		int count = 0;
+		for (boolean value : applied) {
+			if (value) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public int getFailedCount() {
+		return size() - getAppliedCount();
+	}
+
+	public boolean isFullySuccessful() {
+		return getFailedCount() == 0;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchResult [size=" + size() + ", applied=" + getAppliedCount() + ", failed=" + getFailedCount() + "]";
+	}
+}
@@ -1,6 +1,8 @@
 package dao;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 import model.Employee;
 import model.Product;
@@ -13,6 +15,9 @@ import model.Product;
  * @version 2.0
  */
 public interface Dao {
+
+	/** Valor devuelto por {@link #adjustStock(int, int)} cuando el ajuste no se aplica */
+	public static final int STOCK_NOT_ADJUSTED = -1;
 	
 	/**
 	 * Establece la conexión con el origen de datos.
@@ -40,6 +45,41 @@ public interface Dao {
 	 */
 	public ArrayList<Product> getInventory();
 
+	/**
+	 * Recorre el inventario sin materializarlo en memoria: cada producto se entrega
+	 * al consumidor a medida que se lee del almacenamiento (cursor, fetch size o
+	 * lectura línea a línea según la implementación).
+	 * 
+	 * @param fetchSize número de productos que se piden al almacenamiento en cada lote
+	 * @param consumer acción a ejecutar con cada producto
+	 * @return número de productos entregados al consumidor
+	 * @throws java.io.UncheckedIOException si la lectura se interrumpe a medias
+	 *         (por ejemplo, un fichero de inventario mal formado); lo entregado
+	 *         hasta entonces no es el inventario completo
+	 */
+	public long streamInventory(int fetchSize, Consumer<Product> consumer);
+
+	/**
+	 * Recupera una página del inventario ordenada por id usando paginación por
+	 * clave (keyset): la página siguiente se pide con el id del último producto
+	 * recibido, sin recorrer las páginas anteriores.
+	 * 
+	 * @param afterId id del último producto de la página anterior (0 para la primera)
+	 * @param limit número máximo de productos de la página
+	 * @return productos con id mayor que afterId, ordenados por id
+	 */
+	public ArrayList<Product> getInventoryPage(int afterId, int limit);
+
+	/**
+	 * Busca un producto por nombre sin distinguir mayúsculas, usando el índice por
+	 * nombre del almacenamiento en lugar de cargar todo el inventario.
+	 * Con nombres repetidos devuelve el de menor id.
+	 * 
+	 * @param name nombre del producto
+	 * @return el producto, o null si no existe
+	 */
+	public Product findProductByName(String name);
+
 	/**
 	 * Exporta el inventario a almacenamiento histórico.
 	 * 
@@ -68,4 +108,42 @@ public interface Dao {
 	 * @param productId identificador único del producto a eliminar
 	 */
 	public void deleteProduct(int productId);
-}
\ No newline at end of file
+
+	/**
+	 * Añade varios productos en una sola operación del almacenamiento.
+	 * Los identificadores asignados se escriben en cada producto.
+	 * 
+	 * @param products productos a insertar
+	 * @return resultado por producto, en el mismo orden que la lista recibida
+	 */
+	public BatchResult addProducts(List<Product> products);
+
+	/**
+	 * Actualiza varios productos en una sola operación del almacenamiento.
+	 * 
+	 * @param products productos con los datos actualizados
+	 * @return resultado por producto, en el mismo orden que la lista recibida
+	 */
+	public BatchResult updateProducts(List<Product> products);
+
+	/**
+	 * Elimina varios productos en una sola operación del almacenamiento.
+	 * 
+	 * @param productIds identificadores de los productos a eliminar
+	 * @return resultado por identificador, en el mismo orden que la lista recibida
+	 */
+	public BatchResult deleteProducts(List<Integer> productIds);
+	
+	/**
+	 * Suma (o resta, con delta negativo) unidades al stock de un producto de forma
+	 * atómica en el propio almacenamiento, sin reescribir el resto de campos.
+	 * El ajuste no se aplica si el stock resultante fuera negativo. Si el stock
+	 * llega a cero el producto queda marcado como no disponible.
+	 * 
+	 * @param productId identificador único del producto
+	 * @param delta unidades a sumar al stock actual
+	 * @return el nuevo stock, o {@link #STOCK_NOT_ADJUSTED} si el producto no existe
+	 *         o no hay stock suficiente
+	 */
+	public int adjustStock(int productId, int delta);
+}
@@ -1,10 +1,12 @@
 package dao;
 
+import utils.HibernateUtil;
+
 /**
  * Factoría simple para elegir implementación del DAO.
  *
  * Por defecto usa MongoDB.
-	* Puedes cambiarlo con: -Dshop.dao=mongo | jdbc | file | hibernate | objectdb
+	* Puedes cambiarlo con: -Dshop.dao=mongo | jdbc | file | hibernate | objectdb | objectdb-inventory
  */
 public final class DaoFactory {
 
@@ -25,6 +27,17 @@ public final class DaoFactory {
 		return fromAlias(configured, "objectdb");
 	}
 
+	/**
+	 * Adelanta en segundo plano la inicialización de los DAO configurados que
+	 * tardan en arrancar (Hibernate), para que esté lista al terminar el login.
+	 */
+	public static void preload() {
+		if ("hibernate".equals(System.getProperty("shop.dao", "mongo").trim().toLowerCase())
+				|| "hibernate".equals(System.getProperty("shop.login.dao", "objectdb").trim().toLowerCase())) {
+			HibernateUtil.startBootstrap();
+		}
+	}
+
 	private static Dao fromAlias(String configured, String fallback) {
 		return switch (configured) {
 		case "mongo" -> new DaoImplMongoDB();
@@ -32,6 +45,7 @@ public final class DaoFactory {
 		case "file" -> new DaoImplFile();
 		case "hibernate" -> new DaoImplHibernate();
 		case "objectdb" -> new DaoImplObjectDB();
+		case "objectdb-inventory" -> new DaoImplObjectDBInventory();
 		default -> fromAlias(fallback, fallback);
 		};
 	}
@@ -1,19 +1,51 @@
 package dao;
 
-import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
 
+import exception.InventoryFormatException;
 import model.Employee;
 import model.Product;
+import utils.Constants;
 
 public class DaoImplFile implements Dao {
+
+	/** Fichero con el inventario actual */
+	private static final String INVENTORY_FILE = "files/inputInventory.txt";
+
+	/** Fichero con el último id de producto reservado */
+	private static final String SEQUENCE_FILE = "files/inventory.seq";
+
+	/** Índice por nombre normalizado del fichero de inventario (null si hay que reconstruirlo) */
+	private Map<String, Product> nameIndex;
+
+	/** Fecha de modificación del fichero cuando se construyó el índice */
+	private long nameIndexModified;
+
+	/** Ids de producto reservados por bloques para esta terminal */
+	private final IdBlockAllocator idAllocator = new IdBlockAllocator(this::reserveIdBlock);
+
 	@Override
 	public void connect() {
 		// TODO Auto-generated method stub
@@ -34,62 +66,82 @@ public class DaoImplFile implements Dao {
 
 	@Override
 	public ArrayList<Product> getInventory() {
-
-		// locate file, path and name
-		File f = new File(System.getProperty("user.dir") + File.separator + "files/inputInventory.txt");
 		ArrayList<Product> inventory = new ArrayList<>();
-		try (FileReader fr = new FileReader(f); BufferedReader br = new BufferedReader(fr)) {
-			String line = br.readLine();
-
-			// process and read next line until end of file
-			while (line != null) {
-				// split in sections
-				String[] sections = line.split(";");
-
-				String name = "";
-				double price = 0.0;
-				int stock = 0;
-
-				// read each sections
-				for (int i = 0; i < sections.length; i++) {
-					// split data in key(0) and value(1)
-					String[] data = sections[i].split(":");
-
-					switch (i) {
-					case 0:
-						// format product name
-						name = data[1];
-						break;
-
-					case 1:
-						// format price
-						price = Double.parseDouble(data[1]);
-						break;
-
-					case 2:
-						// format stock
-						stock = Integer.parseInt(data[1]);
-						break;
-
-					default:
-						break;
-					}
-				}
-				// add product to inventory
-				inventory.add(new Product(name, price, true, stock));
+		streamInventory(Constants.INVENTORY_FETCH_SIZE, inventory::add);
+		return inventory;
+	}
 
-				// read next line
-				line = br.readLine();
+	/**
+	 * Lee el fichero con {@link InventoryFileParser} (mapeado en memoria, sin
+	 * partir cadenas) y entrega cada producto al consumidor sin acumularlos.
+	 * El fetchSize no aplica: el fichero siempre se lee en streaming. Si no existe
+	 * el fichero el inventario está vacío.
+	 *
+	 * @throws UncheckedIOException si el fichero está mal formado o no se puede
+	 *         leer; el consumidor puede haber recibido ya parte de los productos,
+	 *         así que no debe usarse lo recibido como inventario completo
+	 */
+	@Override
+	public long streamInventory(int fetchSize, Consumer<Product> consumer) {
+		long[] delivered = new long[1];
+		try {
+			readInventory(product -> {
+				consumer.accept(product);
+				delivered[0]++;
+			});
+		} catch (InventoryFormatException e) {
+			System.err.println("Fichero de inventario mal formado: " + e.getMessage());
+			throw new UncheckedIOException(e);
+		} catch (IOException e) {
+			System.err.println("No se ha podido leer el fichero de inventario");
+			throw new UncheckedIOException(e);
+		}
+		return delivered[0];
+	}
+
+	/**
+	 * El fichero no tiene índice: se recorre en streaming conservando solo los
+	 * {@code limit} productos de menor id posteriores a {@code afterId}.
+	 */
+	@Override
+	public ArrayList<Product> getInventoryPage(int afterId, int limit) {
+		PriorityQueue<Product> page = new PriorityQueue<>(Comparator.comparingInt(Product::getId).reversed());
+		streamInventory(Constants.INVENTORY_FETCH_SIZE, product -> {
+			if (limit <= 0 || product.getId() <= afterId) {
+				return;
 			}
-		} catch (FileNotFoundException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			if (page.size() < limit) {
+				page.add(product);
+			} else if (product.getId() < page.peek().getId()) {
+				page.poll();
+				page.add(product);
+			}
+		});
+		ArrayList<Product> sorted = new ArrayList<>(page);
+		sorted.sort(Comparator.comparingInt(Product::getId));
+		return sorted;
+	}
 
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+	/**
+	 * Busca en un índice en memoria por nombre normalizado. El índice se construye
+	 * con una sola lectura del fichero y se reconstruye si el fichero cambia.
+	 */
+	@Override
+	public synchronized Product findProductByName(String name) {
+		long modified = getInventoryFile().lastModified();
+		if (nameIndex == null || modified != nameIndexModified) {
+			Map<String, Product> index = new HashMap<>();
+			streamInventory(Constants.INVENTORY_FETCH_SIZE,
+					product -> index.merge(normalizeName(product.getName()), product,
+							(first, second) -> first.getId() <= second.getId() ? first : second));
+			nameIndex = index;
+			nameIndexModified = modified;
 		}
-		return inventory;
+		return nameIndex.get(normalizeName(name));
+	}
+
+	private static String normalizeName(String name) {
+		return name == null ? "" : name.toLowerCase(Locale.ROOT);
 	}
 
 	@Override
@@ -129,16 +181,257 @@ public class DaoImplFile implements Dao {
 
 	@Override
 	public void addProduct(Product product) {
-		throw new UnsupportedOperationException("addProduct no implementado en DaoImplFile");
+		addProducts(List.of(product));
 	}
 
 	@Override
 	public void updateProduct(Product product) {
-		throw new UnsupportedOperationException("updateProduct no implementado en DaoImplFile");
+		updateProducts(List.of(product));
 	}
 
 	@Override
 	public void deleteProduct(int productId) {
-		throw new UnsupportedOperationException("deleteProduct no implementado en DaoImplFile");
+		deleteProducts(List.of(productId));
+	}
+
+	/**
+	 * Añade los productos al final del inventario con una única reescritura del fichero.
+	 * Los productos sin id reciben uno del bloque reservado en el fichero de secuencia.
+	 */
+	@Override
+	public synchronized BatchResult addProducts(List<Product> products) {
+		ArrayList<Product> inventory;
+		try {
+			inventory = readInventory();
+		} catch (IOException e) {
+			return readFailed(products.size(), e);
+		}
+		for (Product product : products) {
+			if (product.getId() <= 0) {
+				try {
+					product.setId(idAllocator.nextId());
+				} catch (IllegalStateException e) {
+					e.printStackTrace();
+					BatchResult result = new BatchResult(products.size());
+					result.markAllFailed("No se ha podido asignar id al producto");
+					return result;
+				}
+			}
+			inventory.add(product);
+		}
+		BatchResult result = new BatchResult(products.size());
+		markRewriteResult(result, rewriteInventory(inventory));
+		return result;
+	}
+
+	/**
+	 * Sustituye los productos con el mismo id con una única reescritura del fichero.
+	 */
+	@Override
+	public synchronized BatchResult updateProducts(List<Product> products) {
+		ArrayList<Product> inventory;
+		try {
+			inventory = readInventory();
+		} catch (IOException e) {
+			return readFailed(products.size(), e);
+		}
+		Map<Integer, Integer> positions = indexPositions(inventory);
+		BatchResult result = new BatchResult(products.size());
+		for (int i = 0; i < products.size(); i++) {
+			Integer position = positions.get(products.get(i).getId());
+			if (position == null) {
+				result.markFailed(i, "Producto no encontrado");
+			} else {
+				inventory.set(position, products.get(i));
+				result.markApplied(i);
+			}
+		}
+		if (result.getAppliedCount() > 0 && !rewriteInventory(inventory)) {
+			result.markAllFailed("Error escribiendo el fichero de inventario");
+		}
+		return result;
+	}
+
+	/**
+	 * Elimina los productos indicados con una única reescritura del fichero.
+	 */
+	@Override
+	public synchronized BatchResult deleteProducts(List<Integer> productIds) {
+		ArrayList<Product> inventory;
+		try {
+			inventory = readInventory();
+		} catch (IOException e) {
+			return readFailed(productIds.size(), e);
+		}
+		Map<Integer, Integer> positions = indexPositions(inventory);
+		BatchResult result = new BatchResult(productIds.size());
+		boolean[] removed = new boolean[inventory.size()];
+		for (int i = 0; i < productIds.size(); i++) {
+			Integer position = positions.get(productIds.get(i));
+			if (position == null || removed[position]) {
+				result.markFailed(i, "Producto no encontrado");
+			} else {
+				removed[position] = true;
+				result.markApplied(i);
+			}
+		}
+		ArrayList<Product> remaining = new ArrayList<>();
+		for (int i = 0; i < inventory.size(); i++) {
+			if (!removed[i]) {
+				remaining.add(inventory.get(i));
+			}
+		}
+		if (result.getAppliedCount() > 0 && !rewriteInventory(remaining)) {
+			result.markAllFailed("Error escribiendo el fichero de inventario");
+		}
+		return result;
+	}
+
+	/**
+	 * Lee el inventario completo antes de reescribirlo. A diferencia de
+	 * {@link #getInventory()}, una línea mal formada o un error de lectura se
+	 * propagan: reescribir a partir de una lectura parcial borraría el resto del
+	 * fichero. Si el fichero aún no existe, el inventario está vacío.
+	 */
+	private ArrayList<Product> readInventory() throws IOException {
+		ArrayList<Product> inventory = new ArrayList<>();
+		readInventory(inventory::add);
+		return inventory;
+	}
+
+	private void readInventory(Consumer<Product> consumer) throws IOException {
+		File file = getInventoryFile();
+		if (file.exists()) {
+			new InventoryFileParser().parse(file.toPath(), consumer);
+		}
+	}
+
+	private BatchResult readFailed(int size, IOException e) {
+		System.err.println("No se modifica el fichero de inventario: " + e.getMessage());
+		e.printStackTrace();
+		BatchResult result = new BatchResult(size);
+		result.markAllFailed("Error leyendo el fichero de inventario: " + e.getMessage());
+		return result;
+	}
+
+	private Map<Integer, Integer> indexPositions(List<Product> inventory) {
+		Map<Integer, Integer> positions = new HashMap<>();
+		for (int i = 0; i < inventory.size(); i++) {
+			positions.putIfAbsent(inventory.get(i).getId(), i);
+		}
+		return positions;
+	}
+
+	private void markRewriteResult(BatchResult result, boolean written) {
+		if (written) {
+			result.markAllApplied();
+		} else {
+			result.markAllFailed("Error escribiendo el fichero de inventario");
+		}
+	}
+
+	/**
+	 * Ajusta el stock de un producto reescribiendo el fichero de inventario.
+	 * Está sincronizado para que dos ajustes del mismo proceso no se pisen.
+	 */
+	@Override
+	public synchronized int adjustStock(int productId, int delta) {
+		ArrayList<Product> inventory;
+		try {
+			inventory = readInventory();
+		} catch (IOException e) {
+			System.err.println("No se ajusta el stock: " + e.getMessage());
+			return STOCK_NOT_ADJUSTED;
+		}
+		for (Product product : inventory) {
+			if (product.getId() == productId) {
+				int newStock = product.getStock() + delta;
+				if (newStock < 0) {
+					return STOCK_NOT_ADJUSTED;
+				}
+				product.setStock(newStock);
+				return rewriteInventory(inventory) ? newStock : STOCK_NOT_ADJUSTED;
+			}
+		}
+		return STOCK_NOT_ADJUSTED;
+	}
+
+	/**
+	 * Reserva un bloque de ids avanzando el contador del fichero de secuencia.
+	 * El bloqueo del fichero impide que otro proceso reserve el mismo bloque; el
+	 * monitor de la clase evita el OverlappingFileLockException entre instancias
+	 * del mismo proceso. Si el fichero no existe, el contador parte del mayor id
+	 * del inventario.
+	 */
+	private int reserveIdBlock(int blockSize) throws IOException {
+		synchronized (DaoImplFile.class) {
+			Path path = getDataFile(SEQUENCE_FILE).toPath();
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE); FileLock lock = channel.lock()) {
+				ByteBuffer buffer = ByteBuffer.allocate(32);
+				channel.read(buffer, 0);
+				buffer.flip();
+				String content = StandardCharsets.US_ASCII.decode(buffer).toString().trim();
+				int current = content.isEmpty() ? findMaxId() : Integer.parseInt(content);
+				int last = current + blockSize;
+				channel.truncate(0);
+				channel.write(ByteBuffer.wrap(String.valueOf(last).getBytes(StandardCharsets.US_ASCII)), 0);
+				channel.force(false);
+				return last;
+			}
+		}
+	}
+
+	private int findMaxId() throws IOException {
+		int[] maxId = { 0 };
+		readInventory(product -> maxId[0] = Math.max(maxId[0], product.getId()));
+		return maxId[0];
+	}
+
+	private File getInventoryFile() {
+		return getDataFile(INVENTORY_FILE);
+	}
+
+	private File getDataFile(String relativePath) {
+		return new File(System.getProperty("user.dir") + File.separator + relativePath);
+	}
+
+	/**
+	 * Reescribe el fichero de inventario completo en una sola pasada.
+	 * Cada línea incluye el id para que los identificadores se mantengan estables.
+	 * Se escribe primero un fichero temporal en el mismo directorio y después se
+	 * sustituye el original con un movimiento atómico: si la escritura falla, el
+	 * inventario anterior queda intacto.
+	 */
+	private boolean rewriteInventory(List<Product> inventory) {
+		nameIndex = null;
+		Path target = getInventoryFile().toPath();
+		Path tmp = null;
+		try {
+			tmp = Files.createTempFile(target.toAbsolutePath().getParent(), "inputInventory", ".tmp");
+			try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+				for (Product product : inventory) {
+					writer.write(formatInventoryLine(product));
+					writer.write("\n");
+				}
+			}
+			Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			if (tmp != null) {
+				try {
+					Files.deleteIfExists(tmp);
+				} catch (IOException deleteError) {
+					System.err.println("No se pudo borrar el temporal " + tmp + ": " + deleteError.getMessage());
+				}
+			}
+			return false;
+		}
+	}
+
+	private String formatInventoryLine(Product product) {
+		return "Product:" + product.getName() + ";Wholesaler Price:" + product.getPrice() + ";Stock:"
+				+ product.getStock() + ";Id:" + product.getId();
 	}
-}
\ No newline at end of file
+}
@@ -1,11 +1,24 @@
 package dao;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 
 import model.Employee;
 import model.Product;
@@ -18,15 +31,25 @@ import utils.HibernateUtil;
  */
 public class DaoImplHibernate implements Dao {
 
+	/** Tamaño de lote JDBC y frecuencia de flush/clear en las operaciones masivas */
+	private static final int BATCH_SIZE = Integer.getInteger("shop.hibernate.batchSize", 50);
+
+	/** Estrategia de exportación del histórico: batched (por defecto) o stateless */
+	private static final String EXPORT_MODE = System.getProperty("shop.hibernate.exportMode", "batched")
+			.trim().toLowerCase();
+
 	private final SessionFactory sessionFactory;
 
+	/** Resumen de la última exportación histórica */
+	private ExportReport lastExportReport;
+
 	public DaoImplHibernate() {
 		this.sessionFactory = HibernateUtil.getSessionFactory();
 	}
 
 	@Override
 	public void connect() {
-		// SessionFactory ya está inicializado de forma perezosa en HibernateUtil.
+		// El constructor ya ha esperado al arranque de HibernateUtil (ver DaoFactory.preload).
 		HibernateUtil.getSessionFactory();
 	}
 
@@ -36,45 +59,198 @@ public class DaoImplHibernate implements Dao {
 		// Se cierra con el shutdown hook de HibernateUtil.
 	}
 
+	/**
+	 * Carga el empleado por clave primaria (servido desde la caché de segundo
+	 * nivel si está activa) y compara la contraseña en memoria.
+	 */
 	@Override
 	public Employee getEmployee(int employeeId, String password) {
 		try (Session session = sessionFactory.openSession()) {
-			return session
-					.createQuery(
-							"from Employee e where e.employeeId = :employeeId and e.password = :password",
-							Employee.class)
-					.setParameter("employeeId", employeeId)
-					.setParameter("password", password)
-					.uniqueResult();
+			Employee employee = session.get(Employee.class, employeeId);
+			if (employee == null || password == null || !password.equals(employee.getPassword())) {
+				return null;
+			}
+			return employee;
 		}
 	}
 
 	@Override
 	public ArrayList<Product> getInventory() {
 		try (Session session = sessionFactory.openSession()) {
-			List<Product> products = session.createQuery("from Product", Product.class).list();
+			List<Product> products = session.createQuery("from Product", Product.class)
+					.setCacheable(true)
+					.list();
 			return new ArrayList<>(products);
 		}
 	}
 
+	/**
+	 * @return aciertos y fallos de la caché de segundo nivel y de consultas, o un
+	 *         aviso si la caché no está activada (-Dshop.hibernate.cache=true)
+	 */
+	public String getCacheReport() {
+		if (!HibernateUtil.isCacheEnabled()) {
+			return "Cache de segundo nivel desactivada";
+		}
+		Statistics statistics = sessionFactory.getStatistics();
+		StringBuilder report = new StringBuilder();
+		for (String region : new String[] { HibernateUtil.PRODUCT_REGION, HibernateUtil.EMPLOYEE_REGION }) {
+			CacheRegionStatistics regionStats = statistics.getDomainDataRegionStatistics(region);
+			report.append(region).append(": ").append(regionStats.getHitCount()).append(" aciertos, ")
+					.append(regionStats.getMissCount()).append(" fallos, ")
+					.append(regionStats.getElementCountInMemory()).append(" en memoria\n");
+		}
+		report.append("consultas: ").append(statistics.getQueryCacheHitCount()).append(" aciertos, ")
+				.append(statistics.getQueryCacheMissCount()).append(" fallos");
+		return report.toString();
+	}
+
+	/**
+	 * Recorre el inventario con ScrollableResults sobre una StatelessSession:
+	 * las filas llegan en bloques de fetchSize y no se acumulan en el contexto
+	 * de persistencia.
+	 */
+	@Override
+	public long streamInventory(int fetchSize, Consumer<Product> consumer) {
+		long count = 0;
+		StatelessSession session = sessionFactory.openStatelessSession();
+		try {
+			ScrollableResults results = session.createQuery("from Product", Product.class)
+					.setFetchSize(fetchSize)
+					.scroll(ScrollMode.FORWARD_ONLY);
+			try {
+				while (results.next()) {
+					consumer.accept((Product) results.get(0));
+					count++;
+				}
+			} finally {
+				results.close();
+			}
+		} catch (Exception ex) {
+			System.err.println("Error leyendo inventario (Hibernate)");
+			ex.printStackTrace();
+		} finally {
+			session.close();
+		}
+		return count;
+	}
+
+	@Override
+	public ArrayList<Product> getInventoryPage(int afterId, int limit) {
+		try (Session session = sessionFactory.openSession()) {
+			List<Product> products = session
+					.createQuery("from Product p where p.id > :afterId order by p.id", Product.class)
+					.setParameter("afterId", afterId)
+					.setMaxResults(limit)
+					.list();
+			return new ArrayList<>(products);
+		}
+	}
+
+	/**
+	 * Filtra por la columna generada name_normalized (mapeada en {@link Product}),
+	 * así que MySQL resuelve la consulta con su índice.
+	 */
+	@Override
+	public Product findProductByName(String name) {
+		try (Session session = sessionFactory.openSession()) {
+			return session
+					.createQuery("from Product p where p.nameNormalized = :name order by p.id", Product.class)
+					.setParameter("name", name.toLowerCase(Locale.ROOT))
+					.setMaxResults(1)
+					.uniqueResult();
+		}
+	}
+
+	/**
+	 * Exporta una instantánea del inventario a historical_inventory en una única
+	 * transacción y con el mismo created_at para todas las filas.
+	 *
+	 * Modo por defecto (shop.hibernate.exportMode=batched): sesión normal con lotes
+	 * JDBC de BATCH_SIZE INSERT y flush/clear tras cada lote, de modo que el
+	 * contexto de persistencia no crece. Los ids de ProductHistory se reservan por
+	 * bloques (TableGenerator), requisito para que Hibernate agrupe los INSERT.
+	 *
+	 * Modo stateless: StatelessSession sin contexto de persistencia ni eventos.
+	 * En Hibernate 5 no agrupa los INSERT, pero no retiene ningún objeto.
+	 */
 	@Override
 	public boolean writeInventory(ArrayList<Product> inventory) {
+		long start = System.nanoTime();
+		Timestamp snapshotTime = new Timestamp(System.currentTimeMillis());
+		int chunks = "stateless".equals(EXPORT_MODE)
+				? writeInventoryStateless(inventory, snapshotTime)
+				: writeInventoryBatched(inventory, snapshotTime);
+		if (chunks < 0) {
+			return false;
+		}
+		lastExportReport = new ExportReport(snapshotTime, inventory.size(), chunks,
+				(System.nanoTime() - start) / 1_000_000);
+		System.out.println(lastExportReport);
+		return true;
+	}
+
+	/**
+	 * @return resumen de la última exportación correcta, o null si aún no se ha exportado
+	 */
+	public ExportReport getLastExportReport() {
+		return lastExportReport;
+	}
+
+	/**
+	 * @return lotes enviados, o -1 si la exportación falla
+	 */
+	private int writeInventoryBatched(List<Product> inventory, Timestamp snapshotTime) {
 		Transaction tx = null;
 		try (Session session = sessionFactory.openSession()) {
+			session.setJdbcBatchSize(BATCH_SIZE);
 			tx = session.beginTransaction();
-			for (Product product : inventory) {
-				ProductHistory row = ProductHistory.fromProduct(product);
-				session.persist(row);
+			int chunks = 0;
+			for (int i = 0; i < inventory.size(); i++) {
+				session.persist(ProductHistory.fromProduct(inventory.get(i), snapshotTime));
+				if ((i + 1) % BATCH_SIZE == 0) {
+					session.flush();
+					session.clear();
+					chunks++;
+				}
+			}
+			if (inventory.size() % BATCH_SIZE != 0) {
+				chunks++;
 			}
 			tx.commit();
-			return true;
+			return chunks;
 		} catch (Exception ex) {
 			if (tx != null) {
 				tx.rollback();
 			}
 			System.err.println("Error exportando inventario histórico (Hibernate)");
 			ex.printStackTrace();
-			return false;
+			return -1;
+		}
+	}
+
+	/**
+	 * @return filas insertadas (cada una es su propio envío), o -1 si la exportación falla
+	 */
+	private int writeInventoryStateless(List<Product> inventory, Timestamp snapshotTime) {
+		Transaction tx = null;
+		StatelessSession session = sessionFactory.openStatelessSession();
+		try {
+			tx = session.beginTransaction();
+			for (Product product : inventory) {
+				session.insert(ProductHistory.fromProduct(product, snapshotTime));
+			}
+			tx.commit();
+			return inventory.size();
+		} catch (Exception ex) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			System.err.println("Error exportando inventario histórico (Hibernate, stateless)");
+			ex.printStackTrace();
+			return -1;
+		} finally {
+			session.close();
 		}
 	}
 
@@ -94,12 +270,19 @@ public class DaoImplHibernate implements Dao {
 		}
 	}
 
+	/**
+	 * Reasocia el producto recibido (que trae su estado completo) con update():
+	 * un único UPDATE por clave primaria, sin el SELECT previo de merge() o get().
+	 * Con caché de segundo nivel, al confirmar solo se actualiza la entrada de ese
+	 * producto (un UPDATE HQL vaciaría toda la región de Product).
+	 * Los cambios de stock de una venta van por {@link #adjustStock(int, int)}.
+	 */
 	@Override
 	public void updateProduct(Product product) {
 		Transaction tx = null;
 		try (Session session = sessionFactory.openSession()) {
 			tx = session.beginTransaction();
-			session.merge(product);
+			session.update(product);
 			tx.commit();
 		} catch (Exception ex) {
 			if (tx != null) {
@@ -115,6 +298,8 @@ public class DaoImplHibernate implements Dao {
 		Transaction tx = null;
 		try (Session session = sessionFactory.openSession()) {
 			tx = session.beginTransaction();
+			// Con la caché activa el get no llega a la base de datos y el remove solo
+			// invalida esta entrada (un DELETE HQL vaciaría toda la región)
 			Product product = session.get(Product.class, productId);
 			if (product != null) {
 				session.remove(product);
@@ -128,4 +313,211 @@ public class DaoImplHibernate implements Dao {
 			ex.printStackTrace();
 		}
 	}
+
+	/**
+	 * Inserta los productos en una única transacción, vaciando la sesión cada
+	 * BATCH_SIZE elementos para que el contexto de persistencia no crezca.
+	 * Nota: Product usa IDENTITY, por lo que Hibernate no agrupa estos INSERT.
+	 */
+	@Override
+	public BatchResult addProducts(List<Product> products) {
+		return runInBatches(products, (session, product) -> session.persist(product),
+				"Error insertando productos (Hibernate)");
+	}
+
+	/**
+	 * Reasocia los productos con update() (sin SELECT previo, a diferencia de merge)
+	 * para que los UPDATE se envíen agrupados en lotes JDBC. Antes se consultan los
+	 * ids existentes (un SELECT por cada BATCH_SIZE ids) y los que no existen se
+	 * marcan como fallidos en lugar de hacer fallar el lote entero.
+	 */
+	@Override
+	public BatchResult updateProducts(List<Product> products) {
+		BatchResult result = new BatchResult(products.size());
+		if (products.isEmpty()) {
+			return result;
+		}
+		Transaction tx = null;
+		try (Session session = sessionFactory.openSession()) {
+			session.setJdbcBatchSize(BATCH_SIZE);
+			tx = session.beginTransaction();
+			List<Integer> ids = new ArrayList<>(products.size());
+			for (Product product : products) {
+				ids.add(product.getId());
+			}
+			Set<Integer> existing = findExistingIds(session, ids);
+			Set<Integer> pending = new HashSet<>();
+			for (int i = 0; i < products.size(); i++) {
+				Product product = products.get(i);
+				if (!existing.contains(product.getId())) {
+					result.markFailed(i, "Producto no encontrado");
+					continue;
+				}
+				// un id repetido no puede asociarse dos veces a la misma sesión
+				if (pending.size() == BATCH_SIZE || pending.contains(product.getId())) {
+					session.flush();
+					session.clear();
+					pending.clear();
+				}
+				session.update(product);
+				pending.add(product.getId());
+				result.markApplied(i);
+			}
+			tx.commit();
+		} catch (Exception ex) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			System.err.println("Error actualizando productos (Hibernate)");
+			ex.printStackTrace();
+			result.markAllFailed(ex.getMessage());
+		}
+		return result;
+	}
+
+	/**
+	 * Carga los productos en bloques de BATCH_SIZE ids (un SELECT ... IN por bloque)
+	 * y los elimina con remove(), de modo que los DELETE van en lotes JDBC y la
+	 * caché de segundo nivel solo invalida esas entradas (un DELETE HQL vaciaría
+	 * toda la región). Los ids que no existen se marcan como fallidos.
+	 */
+	@Override
+	public BatchResult deleteProducts(List<Integer> productIds) {
+		BatchResult result = new BatchResult(productIds.size());
+		if (productIds.isEmpty()) {
+			return result;
+		}
+		Transaction tx = null;
+		try (Session session = sessionFactory.openSession()) {
+			session.setJdbcBatchSize(BATCH_SIZE);
+			tx = session.beginTransaction();
+			Set<Integer> existing = new HashSet<>();
+			for (int from = 0; from < productIds.size(); from += BATCH_SIZE) {
+				List<Integer> chunk = productIds.subList(from, Math.min(from + BATCH_SIZE, productIds.size()));
+				for (Product product : session.createQuery("from Product p where p.id in (:ids)", Product.class)
+						.setParameterList("ids", chunk)
+						.getResultList()) {
+					existing.add(product.getId());
+					session.remove(product);
+				}
+				session.flush();
+				session.clear();
+			}
+			tx.commit();
+			markFound(result, productIds, existing);
+		} catch (Exception ex) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			System.err.println("Error eliminando productos (Hibernate)");
+			ex.printStackTrace();
+			result.markAllFailed(ex.getMessage());
+		}
+		return result;
+	}
+
+	/**
+	 * @return los ids de la lista que existen en la tabla, consultados en bloques de BATCH_SIZE
+	 */
+	private Set<Integer> findExistingIds(Session session, List<Integer> ids) {
+		Set<Integer> existing = new HashSet<>();
+		for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+			List<Integer> chunk = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+			existing.addAll(session.createQuery("select p.id from Product p where p.id in (:ids)", Integer.class)
+					.setParameterList("ids", chunk)
+					.getResultList());
+		}
+		return existing;
+	}
+
+	/**
+	 * Marca como aplicada la primera aparición de cada id existente y como
+	 * fallidas las demás.
+	 */
+	private void markFound(BatchResult result, List<Integer> ids, Set<Integer> existing) {
+		Set<Integer> seen = new HashSet<>();
+		for (int i = 0; i < ids.size(); i++) {
+			if (existing.contains(ids.get(i)) && seen.add(ids.get(i))) {
+				result.markApplied(i);
+			} else {
+				result.markFailed(i, "Producto no encontrado");
+			}
+		}
+	}
+
+	private BatchResult runInBatches(List<Product> products, BiConsumer<Session, Product> operation,
+			String errorMessage) {
+		BatchResult result = new BatchResult(products.size());
+		if (products.isEmpty()) {
+			return result;
+		}
+		Transaction tx = null;
+		try (Session session = sessionFactory.openSession()) {
+			session.setJdbcBatchSize(BATCH_SIZE);
+			tx = session.beginTransaction();
+			for (int i = 0; i < products.size(); i++) {
+				operation.accept(session, products.get(i));
+				if ((i + 1) % BATCH_SIZE == 0) {
+					session.flush();
+					session.clear();
+				}
+			}
+			tx.commit();
+			result.markAllApplied();
+		} catch (Exception ex) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			System.err.println(errorMessage);
+			ex.printStackTrace();
+			result.markAllFailed(ex.getMessage());
+		}
+		return result;
+	}
+
+	/**
+	 * Ajusta el stock con un único UPDATE relativo y condicional (el mismo que
+	 * DaoImplJDBC) seguido de la lectura del valor resultante en la misma
+	 * transacción. Se ejecuta con doReturningWork y no como UPDATE HQL porque
+	 * Hibernate vaciaría toda la región de Product tras una operación masiva; aquí
+	 * solo se descarta de la caché de segundo nivel la entrada de este producto.
+	 */
+	@Override
+	public int adjustStock(int productId, int delta) {
+		Transaction tx = null;
+		try (Session session = sessionFactory.openSession()) {
+			tx = session.beginTransaction();
+			int newStock = session.doReturningWork(connection -> {
+				try (PreparedStatement update = connection.prepareStatement(
+						"UPDATE inventory SET available = (available AND stock + ? > 0), stock = stock + ?"
+								+ " WHERE id = ? AND stock + ? >= 0")) {
+					update.setInt(1, delta);
+					update.setInt(2, delta);
+					update.setInt(3, productId);
+					update.setInt(4, delta);
+					if (update.executeUpdate() == 0) {
+						return STOCK_NOT_ADJUSTED;
+					}
+				}
+				try (PreparedStatement select = connection.prepareStatement("SELECT stock FROM inventory WHERE id = ?")) {
+					select.setInt(1, productId);
+					try (ResultSet rs = select.executeQuery()) {
+						return rs.next() ? rs.getInt(1) : STOCK_NOT_ADJUSTED;
+					}
+				}
+			});
+			tx.commit();
+			if (newStock != STOCK_NOT_ADJUSTED) {
+				sessionFactory.getCache().evictEntityData(Product.class, productId);
+			}
+			return newStock;
+		} catch (Exception ex) {
+			if (tx != null) {
+				tx.rollback();
+			}
+			System.err.println("Error ajustando stock (Hibernate)");
+			ex.printStackTrace();
+			return STOCK_NOT_ADJUSTED;
+		}
+	}
 }
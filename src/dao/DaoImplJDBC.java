@@ -1,15 +1,20 @@
 package dao;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
 
 import model.Employee;
 import model.Product;
+import utils.Constants;
+import utils.HistoryIdGenerator;
+import utils.JdbcConnectionPool;
 
 /**
  * Implementacion JDBC del patron DAO para persistencia en base de datos MySQL.
@@ -20,28 +25,65 @@ import model.Product;
  */
 public class DaoImplJDBC implements Dao {
 
-    /** URL de conexion a la base de datos MySQL */
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/shop";
+    /** URL de conexion por defecto (configurable con -Dshop.jdbc.url) */
+    private static final String DB_URL = "jdbc:mysql://localhost:3306/shop?useCursorFetch=true";
     
-    /** Usuario de la base de datos */
+    /** Usuario por defecto de la base de datos (configurable con -Dshop.jdbc.user) */
     private static final String DB_USER = "root";
     
-    /** Contrasena de la base de datos */
+    /** Contrasena por defecto de la base de datos (configurable con -Dshop.jdbc.password) */
     private static final String DB_PASS = "";
 
+    /** Productos por INSERT en la exportacion historica (configurable con -Dshop.jdbc.exportChunkSize) */
+    private static final int EXPORT_CHUNK_SIZE = Math.max(1, Integer.getInteger("shop.jdbc.exportChunkSize", 500));
+
+    /** Pool del que se toman prestadas las conexiones */
+    private final JdbcConnectionPool pool;
+
+    /**
+     * Conexion prestada por el pool mientras dura una operacion.
+     * Sus sentencias preparadas se cachean por conexion y no se cierran tras cada uso.
+     */
+    private JdbcConnectionPool.PooledConnection lease;
+
     /** Conexion activa a la base de datos */
     private Connection connection;
 
+    /** Resumen de la ultima exportacion historica */
+    private ExportReport lastExportReport;
+
+    /** Si ya se ha preparado el contador de ids del historico (una vez por instancia) */
+    private boolean historyIdsSeeded;
+
+    /**
+     * Crea el DAO usando el pool compartido para la URL y credenciales configuradas.
+     * Cada instancia usa una conexion a la vez; varias instancias comparten el pool.
+     */
+    public DaoImplJDBC() {
+        this(JdbcConnectionPool.shared(DB_URL, DB_USER, DB_PASS));
+    }
+
     /**
-     * Establece la conexion con la base de datos MySQL.
-     * Si ya existe una conexion abierta, no crea una nueva.
+     * Crea el DAO sobre un pool concreto (por ejemplo, contra una base de datos embebida).
+     * 
+     * @param pool pool de conexiones a usar
+     */
+    public DaoImplJDBC(JdbcConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Toma prestada una conexion del pool.
+     * Si ya hay una conexion prestada, no pide otra.
      */
     @Override
     public void connect() {
+        if (lease != null) {
+            return;
+        }
         try {
-            if (connection == null || connection.isClosed()) {
-                connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASS);
-            }
+            lease = pool.borrow();
+            connection = lease.getConnection();
         } catch (SQLException e) {
             System.err.println("Error abriendo conexion JDBC");
             e.printStackTrace();
@@ -49,21 +91,23 @@ public class DaoImplJDBC implements Dao {
     }
 
     /**
-     * Cierra la conexion con la base de datos.
-     * Libera los recursos asociados a la conexion.
+     * Devuelve la conexion al pool en lugar de cerrarla, para que la siguiente
+     * operacion la reutilice sin repetir el handshake con el servidor.
      */
     @Override
     public void disconnect() {
-        if (connection != null) {
-            try {
-                connection.close();
-            } catch (SQLException e) {
-                System.err.println("Error cerrando conexion JDBC");
-                e.printStackTrace();
-            } finally {
-                connection = null;
-            }
+        if (lease != null) {
+            pool.release(lease);
         }
+        lease = null;
+        connection = null;
+    }
+
+    /**
+     * @return aciertos y fallos de la cache de sentencias preparadas del pool
+     */
+    public String getStatementCacheReport() {
+        return pool.getStatementCacheReport();
     }
 
     /**
@@ -77,8 +121,9 @@ public class DaoImplJDBC implements Dao {
     public Employee getEmployee(int employeeId, String password) {
         Employee employee = null;
         final String query = "SELECT employeeId, name, password FROM employee WHERE employeeId = ? AND password = ?";
-
-        try (PreparedStatement ps = connection.prepareStatement(query)) {
+        connect();
+        try {
+            PreparedStatement ps = lease.prepareStatement(query);
             ps.setInt(1, employeeId);
             ps.setString(2, password);
             try (ResultSet rs = ps.executeQuery()) {
@@ -89,6 +134,8 @@ public class DaoImplJDBC implements Dao {
         } catch (SQLException e) {
             System.err.println("Error consultando empleado");
             e.printStackTrace();
+        } finally {
+            disconnect();
         }
         return employee;
     }
@@ -102,13 +149,32 @@ public class DaoImplJDBC implements Dao {
     @Override
     public ArrayList<Product> getInventory() {
         ArrayList<Product> inventory = new ArrayList<>();
+        streamInventory(Constants.INVENTORY_FETCH_SIZE, inventory::add);
+        return inventory;
+    }
+
+    /**
+     * Recorre la tabla inventory con un cursor de servidor (useCursorFetch) que
+     * trae las filas en bloques de fetchSize en lugar de cargar todo el ResultSet.
+     * 
+     * @param fetchSize filas por bloque pedidas al servidor
+     * @param consumer accion a ejecutar con cada producto
+     * @return numero de productos leidos
+     */
+    @Override
+    public long streamInventory(int fetchSize, Consumer<Product> consumer) {
         final String query = "SELECT id, name, price, available, stock FROM inventory";
+        long count = 0;
         connect();
-        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
-            while (rs.next()) {
-                Product product = new Product(rs.getInt("id"), rs.getString("name"), rs.getDouble("price"),
-                        rs.getBoolean("available"), rs.getInt("stock"));
-                inventory.add(product);
+        try {
+            PreparedStatement ps = lease.prepareStatement(query);
+            ps.setFetchSize(fetchSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(new Product(rs.getInt("id"), rs.getString("name"), rs.getDouble("price"),
+                            rs.getBoolean("available"), rs.getInt("stock")));
+                    count++;
+                }
             }
         } catch (SQLException e) {
             System.err.println("Error leyendo inventario");
@@ -116,42 +182,161 @@ public class DaoImplJDBC implements Dao {
         } finally {
             disconnect();
         }
-        return inventory;
+        return count;
+    }
+
+    /**
+     * Recupera una pagina del inventario paginando por la clave primaria.
+     * El WHERE id > ? con ORDER BY id recorre solo el tramo necesario del indice.
+     * 
+     * @param afterId id del ultimo producto de la pagina anterior (0 para la primera)
+     * @param limit numero maximo de productos
+     * @return productos de la pagina ordenados por id
+     */
+    @Override
+    public ArrayList<Product> getInventoryPage(int afterId, int limit) {
+        ArrayList<Product> page = new ArrayList<>();
+        final String query = "SELECT id, name, price, available, stock FROM inventory WHERE id > ? ORDER BY id LIMIT ?";
+        connect();
+        try {
+            PreparedStatement ps = lease.prepareStatement(query);
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    page.add(new Product(rs.getInt("id"), rs.getString("name"), rs.getDouble("price"),
+                            rs.getBoolean("available"), rs.getInt("stock")));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error leyendo pagina de inventario");
+            e.printStackTrace();
+        } finally {
+            disconnect();
+        }
+        return page;
     }
 
     /**
-     * Exporta el inventario a la tabla historica historical_inventory.
-     * Utiliza batch processing para insertar multiples productos eficientemente.
+     * Busca un producto por nombre a traves de la columna name_normalized
+     * (LOWER(name)) y su indice, sin recorrer la tabla. Si varios productos solo
+     * difieren en mayusculas se devuelve el de menor id.
+     * 
+     * @param name nombre del producto, sin distinguir mayusculas
+     * @return el producto, o null si no existe
+     */
+    @Override
+    public Product findProductByName(String name) {
+        final String query = "SELECT id, name, price, available, stock FROM inventory WHERE name_normalized = ?"
+                + " ORDER BY id LIMIT 1";
+        Product product = null;
+        connect();
+        try {
+            PreparedStatement ps = lease.prepareStatement(query);
+            ps.setString(1, name.toLowerCase(Locale.ROOT));
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    product = new Product(rs.getInt("id"), rs.getString("name"), rs.getDouble("price"),
+                            rs.getBoolean("available"), rs.getInt("stock"));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error buscando producto por nombre");
+            e.printStackTrace();
+        } finally {
+            disconnect();
+        }
+        return product;
+    }
+
+    /**
+     * Exporta el inventario a la tabla historica historical_inventory como una
+     * instantanea: todas las filas comparten el mismo created_at y se escriben en
+     * una unica transaccion, de modo que la instantanea queda completa o no queda.
+     * Las filas se envian en bloques de EXPORT_CHUNK_SIZE con INSERT de varias filas
+     * (un solo viaje al servidor por bloque, sin depender de rewriteBatchedStatements).
      * 
      * @param products lista de productos a exportar
      * @return true si la exportacion fue exitosa, false en caso contrario
      */
     @Override
     public boolean writeInventory(ArrayList<Product> products) {
-        final String query = "INSERT INTO historical_inventory (id_product, name, price, available, stock, created_at)"
-                + " VALUES (?, ?, ?, ?, ?, ?)";
+        long start = System.nanoTime();
+        Timestamp snapshotTime = new Timestamp(System.currentTimeMillis());
+        int chunks = 0;
         connect();
-        try (PreparedStatement ps = connection.prepareStatement(query)) {
-            for (Product product : products) {
-                ps.setInt(1, product.getId());
-                ps.setString(2, product.getName());
-                ps.setDouble(3, product.getPrice());
-                ps.setBoolean(4, product.isAvailable());
-                ps.setInt(5, product.getStock());
-                ps.setTimestamp(6, new java.sql.Timestamp(System.currentTimeMillis()));
-                ps.addBatch();
+        try {
+            seedHistoryIds();
+            connection.setAutoCommit(false);
+            // mismo contador que el TableGenerator de Hibernate: los ids nunca se solapan
+            int nextId = products.isEmpty() ? 0 : HistoryIdGenerator.reserve(connection, products.size());
+            for (int from = 0; from < products.size(); from += EXPORT_CHUNK_SIZE) {
+                List<Product> chunk = products.subList(from, Math.min(from + EXPORT_CHUNK_SIZE, products.size()));
+                PreparedStatement ps = lease.prepareStatement(historicalInsert(chunk.size()));
+                int index = 1;
+                for (Product product : chunk) {
+                    ps.setInt(index++, nextId++);
+                    ps.setInt(index++, product.getId());
+                    ps.setString(index++, product.getName());
+                    ps.setDouble(index++, product.getPrice());
+                    ps.setBoolean(index++, product.isAvailable());
+                    ps.setInt(index++, product.getStock());
+                    ps.setTimestamp(index++, snapshotTime);
+                }
+                ps.executeUpdate();
+                chunks++;
             }
-            ps.executeBatch();
+            connection.commit();
+            lastExportReport = new ExportReport(snapshotTime, products.size(), chunks,
+                    (System.nanoTime() - start) / 1_000_000);
+            System.out.println(lastExportReport);
             return true;
         } catch (SQLException e) {
             System.err.println("Error exportando inventario historico");
             e.printStackTrace();
+            rollback();
         } finally {
             disconnect();
         }
         return false;
     }
 
+    /**
+     * Prepara el contador de ids del historico la primera vez que exporta esta
+     * instancia, en una transaccion corta y propia: la comprobacion con MAX(id)
+     * no queda dentro de cada exportacion bloqueando el historico.
+     */
+    private void seedHistoryIds() throws SQLException {
+        if (historyIdsSeeded) {
+            return;
+        }
+        connection.setAutoCommit(false);
+        HistoryIdGenerator.seed(connection);
+        connection.commit();
+        historyIdsSeeded = true;
+    }
+
+    /**
+     * @return resumen de la ultima exportacion correcta, o null si aun no se ha exportado
+     */
+    public ExportReport getLastExportReport() {
+        return lastExportReport;
+    }
+
+    /**
+     * Construye el INSERT de varias filas para un bloque de la exportacion.
+     * Solo hay dos tamanos distintos (bloque completo y ultimo bloque), asi que
+     * ambos quedan en la cache de sentencias de la conexion.
+     */
+    private static String historicalInsert(int rows) {
+        StringBuilder sql = new StringBuilder(
+                "INSERT INTO historical_inventory (id, id_product, name, price, available, stock, created_at) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
     /**
      * Inserta un nuevo producto en la tabla inventory.
      * 
@@ -161,7 +346,8 @@ public class DaoImplJDBC implements Dao {
     public void addProduct(Product product) {
         final String query = "INSERT INTO inventory (name, price, available, stock) VALUES (?, ?, ?, ?)";
         connect();
-        try (PreparedStatement ps = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+        try {
+            PreparedStatement ps = lease.prepareStatementReturningKeys(query);
             ps.setString(1, product.getName());
             ps.setDouble(2, product.getPrice());
             ps.setBoolean(3, product.isAvailable());
@@ -190,7 +376,8 @@ public class DaoImplJDBC implements Dao {
     public void updateProduct(Product product) {
         final String query = "UPDATE inventory SET stock = ?, available = ?, price = ? WHERE id = ?";
         connect();
-        try (PreparedStatement ps = connection.prepareStatement(query)) {
+        try {
+            PreparedStatement ps = lease.prepareStatement(query);
             ps.setInt(1, product.getStock());
             ps.setBoolean(2, product.isAvailable());
             ps.setDouble(3, product.getPrice());
@@ -213,7 +400,8 @@ public class DaoImplJDBC implements Dao {
     public void deleteProduct(int productId) {
         final String query = "DELETE FROM inventory WHERE id = ?";
         connect();
-        try (PreparedStatement ps = connection.prepareStatement(query)) {
+        try {
+            PreparedStatement ps = lease.prepareStatement(query);
             ps.setInt(1, productId);
             ps.executeUpdate();
         } catch (SQLException e) {
@@ -223,4 +411,184 @@ public class DaoImplJDBC implements Dao {
             disconnect();
         }
     }
+
+    /**
+     * Inserta varios productos con un unico batch JDBC dentro de una transaccion.
+     * Si el batch falla se deshace completo y todos los productos se marcan como fallidos.
+     * 
+     * @param products productos a insertar
+     * @return resultado por producto
+     */
+    @Override
+    public BatchResult addProducts(List<Product> products) {
+        final String query = "INSERT INTO inventory (name, price, available, stock) VALUES (?, ?, ?, ?)";
+        BatchResult result = new BatchResult(products.size());
+        if (products.isEmpty()) {
+            return result;
+        }
+        connect();
+        try {
+            PreparedStatement ps = lease.prepareStatementReturningKeys(query);
+            connection.setAutoCommit(false);
+            for (Product product : products) {
+                ps.setString(1, product.getName());
+                ps.setDouble(2, product.getPrice());
+                ps.setBoolean(3, product.isAvailable());
+                ps.setInt(4, product.getStock());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                int index = 0;
+                while (keys.next() && index < products.size()) {
+                    products.get(index++).setId(keys.getInt(1));
+                }
+            }
+            connection.commit();
+            result.markAllApplied();
+        } catch (SQLException e) {
+            System.err.println("Error insertando productos");
+            e.printStackTrace();
+            rollback();
+            result.markAllFailed(e.getMessage());
+        } finally {
+            disconnect();
+        }
+        return result;
+    }
+
+    /**
+     * Actualiza varios productos con un unico batch JDBC dentro de una transaccion.
+     * 
+     * @param products productos con los datos actualizados
+     * @return resultado por producto (fallido si el id no existe)
+     */
+    @Override
+    public BatchResult updateProducts(List<Product> products) {
+        final String query = "UPDATE inventory SET stock = ?, available = ?, price = ? WHERE id = ?";
+        return executeBatch(query, products, (ps, product) -> {
+            ps.setInt(1, product.getStock());
+            ps.setBoolean(2, product.isAvailable());
+            ps.setDouble(3, product.getPrice());
+            ps.setInt(4, product.getId());
+        }, "Error actualizando productos");
+    }
+
+    /**
+     * Elimina varios productos con un unico batch JDBC dentro de una transaccion.
+     * 
+     * @param productIds identificadores de los productos a eliminar
+     * @return resultado por identificador (fallido si el id no existe)
+     */
+    @Override
+    public BatchResult deleteProducts(List<Integer> productIds) {
+        final String query = "DELETE FROM inventory WHERE id = ?";
+        return executeBatch(query, productIds, (ps, productId) -> ps.setInt(1, productId),
+                "Error eliminando productos");
+    }
+
+    /**
+     * Ejecuta la misma sentencia para cada elemento en un batch transaccional y
+     * traduce los contadores devueltos por el driver a un resultado por elemento.
+     */
+    private <T> BatchResult executeBatch(String query, List<T> items, StatementBinder<T> binder,
+            String errorMessage) {
+        BatchResult result = new BatchResult(items.size());
+        if (items.isEmpty()) {
+            return result;
+        }
+        connect();
+        try {
+            PreparedStatement ps = lease.prepareStatement(query);
+            connection.setAutoCommit(false);
+            for (T item : items) {
+                binder.bind(ps, item);
+                ps.addBatch();
+            }
+            int[] counts = ps.executeBatch();
+            connection.commit();
+            for (int i = 0; i < items.size(); i++) {
+                if (i < counts.length && counts[i] == 0) {
+                    result.markFailed(i, "Producto no encontrado");
+                } else {
+                    result.markApplied(i);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println(errorMessage);
+            e.printStackTrace();
+            rollback();
+            result.markAllFailed(e.getMessage());
+        } finally {
+            disconnect();
+        }
+        return result;
+    }
+
+    /**
+     * Asigna los parametros de una sentencia preparada a partir de un elemento.
+     */
+    @FunctionalInterface
+    private interface StatementBinder<T> {
+        void bind(PreparedStatement ps, T item) throws SQLException;
+    }
+
+    /**
+     * Ajusta el stock de un producto con un UPDATE relativo (stock = stock + delta).
+     * La condicion del WHERE impide dejar el stock en negativo y el SELECT posterior
+     * se ejecuta en la misma transaccion para devolver el valor resultante.
+     * 
+     * @param productId identificador del producto
+     * @param delta unidades a sumar (negativo para restar)
+     * @return el nuevo stock, o STOCK_NOT_ADJUSTED si no se aplico el ajuste
+     */
+    @Override
+    public int adjustStock(int productId, int delta) {
+        final String update = "UPDATE inventory SET available = (available AND stock + ? > 0), stock = stock + ?"
+                + " WHERE id = ? AND stock + ? >= 0";
+        final String select = "SELECT stock FROM inventory WHERE id = ?";
+        int newStock = STOCK_NOT_ADJUSTED;
+        connect();
+        try {
+            connection.setAutoCommit(false);
+            PreparedStatement ps = lease.prepareStatement(update);
+            ps.setInt(1, delta);
+            ps.setInt(2, delta);
+            ps.setInt(3, productId);
+            ps.setInt(4, delta);
+            if (ps.executeUpdate() == 1) {
+                PreparedStatement query = lease.prepareStatement(select);
+                query.setInt(1, productId);
+                try (ResultSet rs = query.executeQuery()) {
+                    if (rs.next()) {
+                        newStock = rs.getInt("stock");
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            System.err.println("Error ajustando stock");
+            e.printStackTrace();
+            rollback();
+            newStock = STOCK_NOT_ADJUSTED;
+        } finally {
+            disconnect();
+        }
+        return newStock;
+    }
+
+    /**
+     * Deshace la transaccion en curso, si la hay, sin propagar errores.
+     */
+    private void rollback() {
+        try {
+            if (connection != null && !connection.getAutoCommit()) {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error deshaciendo transaccion JDBC");
+            e.printStackTrace();
+        }
+    }
 }
@@ -1,122 +1,197 @@
 package dao;
 
+import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gt;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.in;
+import static com.mongodb.client.model.Filters.lte;
+import static com.mongodb.client.model.Projections.include;
 import static com.mongodb.client.model.Sorts.ascending;
 import static com.mongodb.client.model.Sorts.descending;
+import static com.mongodb.client.model.Updates.inc;
 
-import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import org.bson.BsonDocument;
 import org.bson.Document;
 
-import com.mongodb.client.MongoClient;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.WriteModel;
 
 import model.Employee;
 import model.Product;
-import utils.EmbeddedMongoServer;
+import utils.Constants;
+import utils.MongoClientHolder;
 import utils.MongoSupport;
+import utils.ProductCodec;
 
 /**
  * Implementacion DAO para MongoDB.
+ *
+ * Los productos y empleados se convierten con los codecs registrados en
+ * {@link MongoSupport#createClient()}, sin pasar por org.bson.Document.
  */
 public class DaoImplMongoDB implements Dao {
 
-	private MongoClient mongoClient;
+	/** Documento de la coleccion counters con el ultimo id de producto reservado */
+	private static final String PRODUCT_ID_COUNTER = "productId";
+
+	private static final int DUPLICATE_KEY_ERROR = 11000;
+
 	private MongoDatabase database;
+	/** Inventario sin tipar, para actualizaciones con proyeccion */
 	private MongoCollection<Document> inventoryCollection;
-	private MongoCollection<Document> historyCollection;
-	private MongoCollection<Document> usersCollection;
 
-	@Override
-	public void connect() {
-		if (mongoClient != null) {
-			return;
-		}
+	/** Inventario leido y escrito con {@link ProductCodec} */
+	private MongoCollection<Product> productCollection;
+	private MongoCollection<ProductCodec.Snapshot> historyCollection;
+	private MongoCollection<Document> historyBuckets;
+	private MongoCollection<Employee> usersCollection;
 
-		initializeClient();
-		try {
-			database.runCommand(new Document("ping", 1));
-		} catch (Exception ex) {
-			disconnect();
-			if (MongoSupport.isEmbeddedFallbackEnabled() && MongoSupport.isLocalConnection()) {
-				EmbeddedMongoServer.ensureStarted(MongoSupport.getConnectionString());
-				initializeClient();
-				database.runCommand(new Document("ping", 1));
-			} else {
-				throw ex;
-			}
-		}
+	/** Ids de producto reservados por bloques para esta terminal */
+	private final IdBlockAllocator idAllocator = new IdBlockAllocator(this::reserveIdBlock);
 
-		MongoSupport.initializeDatabase(database);
+	/**
+	 * Obtiene las colecciones a partir del cliente compartido del proceso.
+	 * No abre conexiones nuevas: el pool del MongoClient compartido las reutiliza,
+	 * y los indices y datos iniciales se preparan solo en la primera conexion.
+	 */
+	@Override
+	public void connect() {
+		database = MongoClientHolder.getDatabase();
+		MongoSupport.ensureInitialized(database);
 		inventoryCollection = database.getCollection(MongoSupport.INVENTORY_COLLECTION);
-		historyCollection = database.getCollection(MongoSupport.HISTORY_COLLECTION);
-		usersCollection = database.getCollection(MongoSupport.USERS_COLLECTION);
+		productCollection = inventoryCollection.withDocumentClass(Product.class);
+		historyCollection = database.getCollection(MongoSupport.HISTORY_COLLECTION, ProductCodec.Snapshot.class);
+		historyBuckets = database.getCollection(MongoSupport.HISTORY_BUCKETS_COLLECTION);
+		usersCollection = database.getCollection(MongoSupport.USERS_COLLECTION, Employee.class);
 	}
 
+	/**
+	 * No hace nada: las colecciones pertenecen al cliente compartido, que sigue abierto
+	 * hasta {@link MongoClientHolder#shutdown()} o el cierre de la aplicacion, y otros
+	 * hilos pueden estar usando este DAO. Un {@link #connect()} posterior las vuelve a obtener.
+	 */
 	@Override
 	public void disconnect() {
-		if (mongoClient != null) {
-			mongoClient.close();
-		}
-		mongoClient = null;
-		database = null;
-		inventoryCollection = null;
-		historyCollection = null;
-		usersCollection = null;
 	}
 
 	@Override
 	public Employee getEmployee(int employeeId, String password) {
 		connect();
 		try {
-			Document document = usersCollection.find(eq("employeeId", employeeId))
-					.filter(eq("password", password))
-					.first();
-			if (document == null) {
-				return null;
-			}
-			return new Employee(
-					readInt(document, "employeeId"),
-					document.getString("name"),
-					document.getString("password"));
+			return usersCollection.find(and(eq("employeeId", employeeId), eq("password", password))).first();
 		} catch (Exception ex) {
 			System.err.println("Error consultando usuario en MongoDB");
 			ex.printStackTrace();
 			return null;
-		} finally {
-			disconnect();
 		}
 	}
 
 	@Override
 	public ArrayList<Product> getInventory() {
+		ArrayList<Product> inventory = new ArrayList<>();
+		streamInventory(Constants.INVENTORY_FETCH_SIZE, inventory::add);
+		return inventory;
+	}
+
+	/**
+	 * Recorre la coleccion con un cursor que pide los documentos en lotes de
+	 * {@code fetchSize}, de modo que solo un lote esta en memoria a la vez.
+	 */
+	@Override
+	public long streamInventory(int fetchSize, Consumer<Product> consumer) {
 		connect();
-		try {
-			ArrayList<Product> inventory = new ArrayList<>();
-			for (Document document : inventoryCollection.find().sort(ascending("id"))) {
-				inventory.add(toProduct(document));
+		long count = 0;
+		try (MongoCursor<Product> cursor = productCollection.find()
+				.sort(ascending("id"))
+				.batchSize(fetchSize)
+				.cursor()) {
+			while (cursor.hasNext()) {
+				consumer.accept(cursor.next());
+				count++;
 			}
-			return inventory;
 		} catch (Exception ex) {
 			System.err.println("Error leyendo inventario desde MongoDB");
 			ex.printStackTrace();
-			return new ArrayList<>();
-		} finally {
-			disconnect();
 		}
+		return count;
 	}
 
+	/**
+	 * Pagina por clave sobre el indice unico de {@code id}: cada pagina es un
+	 * recorrido acotado del indice a partir de {@code afterId}.
+	 */
+	@Override
+	public ArrayList<Product> getInventoryPage(int afterId, int limit) {
+		connect();
+		ArrayList<Product> page = new ArrayList<>();
+		try {
+			productCollection.find(gt("id", afterId))
+					.sort(ascending("id"))
+					.limit(limit)
+					.into(page);
+		} catch (Exception ex) {
+			System.err.println("Error leyendo pagina de inventario desde MongoDB");
+			ex.printStackTrace();
+		}
+		return page;
+	}
+
+	/**
+	 * Usa el indice de nombre con colacion sin mayusculas creado en MongoSupport.
+	 */
+	@Override
+	public Product findProductByName(String name) {
+		connect();
+		try {
+			return productCollection.find(eq("name", name))
+					.collation(MongoSupport.NAME_COLLATION)
+					.sort(ascending("id"))
+					.first();
+		} catch (Exception ex) {
+			System.err.println("Error buscando producto por nombre en MongoDB");
+			ex.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Exporta una instantanea del inventario. Segun shop.mongo.historyMode se
+	 * escribe un documento por producto (documents) o un documento por cada
+	 * bloque de productos (buckets), ver {@link #toHistoryBucket}.
+	 */
 	@Override
 	public boolean writeInventory(ArrayList<Product> products) {
 		connect();
 		try {
-			List<Document> documents = new ArrayList<>();
+			Date createdAt = new Date();
+			if (MongoSupport.HISTORY_MODE_BUCKETS.equals(MongoSupport.getHistoryMode())) {
+				writeHistoryBuckets(products, createdAt);
+				return true;
+			}
+			List<ProductCodec.Snapshot> documents = new ArrayList<>(products.size());
 			for (Product product : products) {
-				documents.add(toHistoricalDocument(product));
+				documents.add(new ProductCodec.Snapshot(product, createdAt));
 			}
 			if (!documents.isEmpty()) {
 				historyCollection.insertMany(documents);
@@ -126,8 +201,149 @@ public class DaoImplMongoDB implements Dao {
 			System.err.println("Error exportando inventario a MongoDB");
 			ex.printStackTrace();
 			return false;
-		} finally {
-			disconnect();
+		}
+	}
+
+	/**
+	 * Devuelve los instantes de las instantaneas exportadas, de la mas antigua a
+	 * la mas reciente, en el modo de historico configurado.
+	 */
+	public List<Date> getHistorySnapshotTimes() {
+		connect();
+		List<Date> times = new ArrayList<>();
+		try {
+			if (MongoSupport.HISTORY_MODE_BUCKETS.equals(MongoSupport.getHistoryMode())) {
+				historyBuckets.distinct("snapshotAt", Date.class).into(times);
+			} else {
+				database.getCollection(MongoSupport.HISTORY_COLLECTION).distinct("created_at", Date.class).into(times);
+			}
+			times.sort(null);
+		} catch (Exception ex) {
+			System.err.println("Error leyendo instantaneas del historico en MongoDB");
+			ex.printStackTrace();
+		}
+		return times;
+	}
+
+	/**
+	 * Lee los productos de una instantanea del historico, ordenados por id,
+	 * desempaquetando los buckets si el historico esta en ese modo.
+	 *
+	 * @param snapshotAt instante de la instantanea (ver {@link #getHistorySnapshotTimes()})
+	 * @return productos tal como estaban al exportar
+	 */
+	public ArrayList<Product> readHistorySnapshot(Date snapshotAt) {
+		connect();
+		ArrayList<Product> products = new ArrayList<>();
+		try {
+			if (MongoSupport.HISTORY_MODE_BUCKETS.equals(MongoSupport.getHistoryMode())) {
+				for (Document bucket : historyBuckets.find(eq("snapshotAt", snapshotAt)).sort(ascending("minId"))) {
+					unpackHistoryBucket(bucket, products::add);
+				}
+			} else {
+				database.getCollection(MongoSupport.HISTORY_COLLECTION, Product.class)
+						.find(eq("created_at", snapshotAt))
+						.sort(ascending("id"))
+						.into(products);
+			}
+		} catch (Exception ex) {
+			System.err.println("Error leyendo instantanea del historico en MongoDB");
+			ex.printStackTrace();
+		}
+		return products;
+	}
+
+	/**
+	 * Busca el estado de un producto en una instantanea. En modo buckets solo lee
+	 * el bucket cuyo rango de ids lo contiene.
+	 *
+	 * @return el producto, o null si no estaba en la instantanea
+	 */
+	public Product readHistoryProduct(Date snapshotAt, int productId) {
+		connect();
+		try {
+			if (!MongoSupport.HISTORY_MODE_BUCKETS.equals(MongoSupport.getHistoryMode())) {
+				return database.getCollection(MongoSupport.HISTORY_COLLECTION, Product.class)
+						.find(and(eq("created_at", snapshotAt), eq("id", productId)))
+						.first();
+			}
+			Document bucket = historyBuckets.find(and(eq("snapshotAt", snapshotAt), lte("minId", productId),
+					gte("maxId", productId))).first();
+			if (bucket == null) {
+				return null;
+			}
+			Product[] found = new Product[1];
+			unpackHistoryBucket(bucket, product -> {
+				if (product.getId() == productId) {
+					found[0] = product;
+				}
+			});
+			return found[0];
+		} catch (Exception ex) {
+			System.err.println("Error leyendo producto del historico en MongoDB");
+			ex.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Escribe la instantanea en documentos de hasta shop.mongo.historyBucketSize
+	 * productos, ordenados por id para que cada bucket cubra un rango de ids.
+	 */
+	private void writeHistoryBuckets(List<Product> products, Date snapshotAt) {
+		if (products.isEmpty()) {
+			return;
+		}
+		List<Product> sorted = new ArrayList<>(products);
+		sorted.sort(Comparator.comparingInt(Product::getId));
+		int bucketSize = MongoSupport.getHistoryBucketSize();
+		List<Document> buckets = new ArrayList<>(sorted.size() / bucketSize + 1);
+		for (int from = 0; from < sorted.size(); from += bucketSize) {
+			buckets.add(toHistoryBucket(sorted.subList(from, Math.min(from + bucketSize, sorted.size())), snapshotAt));
+		}
+		historyBuckets.insertMany(buckets);
+	}
+
+	/**
+	 * Un bucket guarda los campos en columnas (un array por campo) para no repetir
+	 * nombres de campo, moneda ni fecha en cada producto:
+	 * {@code {snapshotAt, minId, maxId, count, currency, ids[], names[], prices[], available[], stock[]}}.
+	 */
+	private Document toHistoryBucket(List<Product> products, Date snapshotAt) {
+		int size = products.size();
+		List<Integer> ids = new ArrayList<>(size);
+		List<String> names = new ArrayList<>(size);
+		List<Double> prices = new ArrayList<>(size);
+		List<Boolean> available = new ArrayList<>(size);
+		List<Integer> stock = new ArrayList<>(size);
+		for (Product product : products) {
+			ids.add(product.getId());
+			names.add(product.getName());
+			prices.add(product.getPrice());
+			available.add(product.isAvailable());
+			stock.add(product.getStock());
+		}
+		return new Document("snapshotAt", snapshotAt)
+				.append("minId", ids.getFirst())
+				.append("maxId", ids.getLast())
+				.append("count", size)
+				.append("currency", MongoSupport.getCurrency())
+				.append("ids", ids)
+				.append("names", names)
+				.append("prices", prices)
+				.append("available", available)
+				.append("stock", stock);
+	}
+
+	private void unpackHistoryBucket(Document bucket, Consumer<Product> consumer) {
+		List<Number> ids = bucket.getList("ids", Number.class);
+		List<String> names = bucket.getList("names", String.class);
+		List<Number> prices = bucket.getList("prices", Number.class);
+		List<Boolean> available = bucket.getList("available", Boolean.class);
+		List<Number> stock = bucket.getList("stock", Number.class);
+		for (int i = 0; i < ids.size(); i++) {
+			consumer.accept(new Product(ids.get(i).intValue(), names.get(i), prices.get(i).doubleValue(),
+					available.get(i), stock.get(i).intValue()));
 		}
 	}
 
@@ -136,14 +352,12 @@ public class DaoImplMongoDB implements Dao {
 		connect();
 		try {
 			if (product.getId() <= 0) {
-				product.setId(nextProductId());
+				product.setId(idAllocator.nextId());
 			}
-			inventoryCollection.insertOne(toInventoryDocument(product));
+			productCollection.insertOne(product);
 		} catch (Exception ex) {
 			System.err.println("Error insertando producto en MongoDB");
 			ex.printStackTrace();
-		} finally {
-			disconnect();
 		}
 	}
 
@@ -151,15 +365,13 @@ public class DaoImplMongoDB implements Dao {
 	public void updateProduct(Product product) {
 		connect();
 		try {
-			inventoryCollection.replaceOne(
+			productCollection.replaceOne(
 					eq("id", product.getId()),
-					toInventoryDocument(product),
+					product,
 					new ReplaceOptions().upsert(false));
 		} catch (Exception ex) {
 			System.err.println("Error actualizando producto en MongoDB");
 			ex.printStackTrace();
-		} finally {
-			disconnect();
 		}
 	}
 
@@ -171,48 +383,237 @@ public class DaoImplMongoDB implements Dao {
 		} catch (Exception ex) {
 			System.err.println("Error eliminando producto en MongoDB");
 			ex.printStackTrace();
-		} finally {
-			disconnect();
 		}
 	}
 
-	private int nextProductId() {
-		Document lastProduct = inventoryCollection.find().sort(descending("id")).first();
-		return lastProduct == null ? 1 : readInt(lastProduct, "id") + 1;
+	@Override
+	public BatchResult addProducts(List<Product> products) {
+		connect();
+		List<WriteModel<Product>> models = new ArrayList<>();
+		for (Product product : products) {
+			if (product.getId() <= 0) {
+				product.setId(idAllocator.nextId());
+			}
+			models.add(new InsertOneModel<>(product));
+		}
+		return bulkWrite(models, "Error insertando productos en MongoDB");
 	}
 
-	private void initializeClient() {
-		mongoClient = MongoSupport.createClient();
-		database = mongoClient.getDatabase(MongoSupport.getDatabaseName());
+	/**
+	 * Reemplaza los productos existentes en un unico bulkWrite. Los ids que no
+	 * existen (un replace sin coincidencias no da error) se marcan como fallidos.
+	 */
+	@Override
+	public BatchResult updateProducts(List<Product> products) {
+		connect();
+		List<Integer> ids = new ArrayList<>(products.size());
+		for (Product product : products) {
+			ids.add(product.getId());
+		}
+		BatchResult result = new BatchResult(products.size());
+		try {
+			Set<Integer> existing = findExistingIds(ids);
+			List<WriteModel<Product>> models = new ArrayList<>();
+			List<Integer> positions = new ArrayList<>();
+			for (int i = 0; i < products.size(); i++) {
+				if (!existing.contains(ids.get(i))) {
+					result.markFailed(i, "Producto no encontrado");
+					continue;
+				}
+				models.add(new ReplaceOneModel<>(eq("id", ids.get(i)), products.get(i),
+						new ReplaceOptions().upsert(false)));
+				positions.add(i);
+			}
+			return bulkWrite(models, positions, result, "Error actualizando productos en MongoDB");
+		} catch (Exception ex) {
+			System.err.println("Error actualizando productos en MongoDB");
+			ex.printStackTrace();
+			result.markAllFailed(ex.getMessage());
+			return result;
+		}
 	}
 
-	private Product toProduct(Document document) {
-		Document wholesalePrice = document.get("wholesalePrice", Document.class);
-		double price = 0.0;
-		if (wholesalePrice != null) {
-			Object value = wholesalePrice.get("value");
-			if (value instanceof Number number) {
-				price = number.doubleValue();
+	/**
+	 * Elimina los productos existentes en un unico bulkWrite. Los ids que no
+	 * existen o estan repetidos se marcan como fallidos.
+	 */
+	@Override
+	public BatchResult deleteProducts(List<Integer> productIds) {
+		connect();
+		BatchResult result = new BatchResult(productIds.size());
+		try {
+			Set<Integer> existing = findExistingIds(productIds);
+			Set<Integer> deleted = new HashSet<>();
+			List<WriteModel<Product>> models = new ArrayList<>();
+			List<Integer> positions = new ArrayList<>();
+			for (int i = 0; i < productIds.size(); i++) {
+				int productId = productIds.get(i);
+				if (!existing.contains(productId) || !deleted.add(productId)) {
+					result.markFailed(i, "Producto no encontrado");
+					continue;
+				}
+				models.add(new DeleteOneModel<>(eq("id", productId)));
+				positions.add(i);
 			}
+			return bulkWrite(models, positions, result, "Error eliminando productos en MongoDB");
+		} catch (Exception ex) {
+			System.err.println("Error eliminando productos en MongoDB");
+			ex.printStackTrace();
+			result.markAllFailed(ex.getMessage());
+			return result;
 		}
-		return new Product(
-				readInt(document, "id"),
-				document.getString("name"),
-				price,
-				document.getBoolean("available", Boolean.TRUE),
-				readInt(document, "stock"));
 	}
 
-	private Document toInventoryDocument(Product product) {
-		return new Document("id", product.getId())
-				.append("name", product.getName())
-				.append("wholesalePrice", MongoSupport.priceDocument(product.getPrice()))
-				.append("available", product.isAvailable())
-				.append("stock", product.getStock());
+	/**
+	 * @return los ids de la lista que existen en el inventario (una consulta por el indice de id)
+	 */
+	private Set<Integer> findExistingIds(List<Integer> ids) {
+		Set<Integer> existing = new HashSet<>();
+		if (ids.isEmpty()) {
+			return existing;
+		}
+		for (Document document : inventoryCollection.find(in("id", ids)).projection(include("id"))) {
+			existing.add(readInt(document, "id"));
+		}
+		return existing;
 	}
 
-	private Document toHistoricalDocument(Product product) {
-		return toInventoryDocument(product).append("created_at", java.util.Date.from(Instant.now()));
+	private BatchResult bulkWrite(List<WriteModel<Product>> models, String errorMessage) {
+		List<Integer> positions = new ArrayList<>(models.size());
+		for (int i = 0; i < models.size(); i++) {
+			positions.add(i);
+		}
+		return bulkWrite(models, positions, new BatchResult(models.size()), errorMessage);
+	}
+
+	/**
+	 * Envia todas las operaciones en un unico bulkWrite no ordenado: un fallo en un
+	 * elemento no detiene el resto y se refleja en su posicion del resultado.
+	 *
+	 * @param positions posicion en el resultado de cada operacion de models
+	 */
+	private BatchResult bulkWrite(List<WriteModel<Product>> models, List<Integer> positions, BatchResult result,
+			String errorMessage) {
+		if (models.isEmpty()) {
+			return result;
+		}
+		try {
+			productCollection.bulkWrite(models, new BulkWriteOptions().ordered(false));
+			for (int position : positions) {
+				result.markApplied(position);
+			}
+		} catch (MongoBulkWriteException ex) {
+			for (int position : positions) {
+				result.markApplied(position);
+			}
+			for (BulkWriteError error : ex.getWriteErrors()) {
+				result.markFailed(positions.get(error.getIndex()), error.getMessage());
+			}
+		} catch (Exception ex) {
+			System.err.println(errorMessage);
+			ex.printStackTrace();
+			for (int position : positions) {
+				result.markFailed(position, ex.getMessage());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Ajusta el stock con una unica operacion findOneAndUpdate. El filtro
+	 * {@code stock >= -delta} impide vender por debajo de cero aunque varias cajas
+	 * vendan el mismo producto a la vez.
+	 */
+	@Override
+	public int adjustStock(int productId, int delta) {
+		connect();
+		try {
+			Document updated = inventoryCollection.findOneAndUpdate(
+					and(eq("id", productId), gte("stock", -delta)),
+					stockAdjustmentPipeline(delta),
+					new FindOneAndUpdateOptions()
+							.projection(include("stock"))
+							.returnDocument(ReturnDocument.AFTER));
+			return updated == null ? STOCK_NOT_ADJUSTED : readInt(updated, "stock");
+		} catch (Exception ex) {
+			System.err.println("Error ajustando stock en MongoDB");
+			ex.printStackTrace();
+			return STOCK_NOT_ADJUSTED;
+		}
+	}
+
+	private List<Document> stockAdjustmentPipeline(int delta) {
+		Document newStock = new Document("$add", List.of("$stock", delta));
+		Document newAvailable = new Document("$cond",
+				List.of(new Document("$gt", List.of("$stock", 0)), "$available", false));
+		return List.of(
+				new Document("$set", new Document("stock", newStock)),
+				new Document("$set", new Document("available", newAvailable)));
+	}
+
+	/**
+	 * Empieza a seguir los cambios de la coleccion inventory en un hilo propio.
+	 * Requiere que el servidor sea un replica set.
+	 *
+	 * @param resumeToken token desde el que reanudar (null para empezar ahora)
+	 * @param listener receptor de los cambios
+	 * @return watcher activo, que debe cerrarse al terminar
+	 */
+	public MongoInventoryWatcher watchInventory(String resumeToken, InventoryChangeListener listener) {
+		connect();
+		MongoInventoryWatcher.enablePreImages(database, MongoSupport.INVENTORY_COLLECTION);
+		MongoInventoryWatcher watcher = new MongoInventoryWatcher(productCollection, resumeToken, listener);
+		watcher.start();
+		return watcher;
+	}
+
+	/**
+	 * Devuelve el punto actual del change stream del inventario. Se pide antes de
+	 * cargar el inventario para que la carga y el seguimiento no dejen huecos.
+	 *
+	 * @return token de reanudacion serializado, o null si el servidor no lo da
+	 */
+	public String getInventoryResumeToken() {
+		connect();
+		try (var cursor = productCollection.watch().cursor()) {
+			BsonDocument token = cursor.getResumeToken();
+			return token == null ? null : token.toJson();
+		}
+	}
+
+	/**
+	 * Reserva un bloque de ids avanzando el contador de la coleccion counters con
+	 * un findOneAndUpdate atomico. La primera vez el contador se crea a partir del
+	 * mayor id existente; el $max evita retrocederlo si otra terminal lo crea a la vez.
+	 */
+	private int reserveIdBlock(int blockSize) {
+		MongoCollection<Document> counters = database.getCollection(MongoSupport.COUNTERS_COLLECTION);
+		FindOneAndUpdateOptions returnAfter = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+		Document counter = counters.findOneAndUpdate(eq("_id", PRODUCT_ID_COUNTER), inc("seq", blockSize),
+				returnAfter);
+		if (counter == null) {
+			Document lastProduct = inventoryCollection.find()
+					.sort(descending("id"))
+					.projection(include("id"))
+					.first();
+			int maxId = lastProduct == null ? 0 : readInt(lastProduct, "id");
+			Document currentSeq = new Document("$ifNull", List.of("$seq", 0));
+			Document newSeq = new Document("$add",
+					List.of(new Document("$max", List.of(currentSeq, maxId)), blockSize));
+			try {
+				counter = counters.findOneAndUpdate(eq("_id", PRODUCT_ID_COUNTER),
+						List.of(new Document("$set", new Document("seq", newSeq))),
+						new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+			} catch (MongoCommandException ex) {
+				if (ex.getErrorCode() != DUPLICATE_KEY_ERROR) {
+					throw ex;
+				}
+				// otra terminal ha creado el contador a la vez: basta con incrementarlo
+				counter = counters.findOneAndUpdate(eq("_id", PRODUCT_ID_COUNTER), inc("seq", blockSize),
+						returnAfter);
+			}
+		}
+		return readInt(counter, "seq");
 	}
 
 	private int readInt(Document document, String key) {
@@ -1,8 +1,10 @@
 package dao;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
 import javax.persistence.EntityManager;
-import javax.persistence.EntityManagerFactory;
 
 import model.Employee;
 import model.Product;
@@ -15,8 +17,6 @@ import utils.ObjectDbSupport;
  */
 public class DaoImplObjectDB implements Dao {
 
-	private EntityManagerFactory entityManagerFactory;
-	private EntityManager entityManager;
 	private final Dao inventoryDao;
 
 	public DaoImplObjectDB() {
@@ -27,37 +27,27 @@ public class DaoImplObjectDB implements Dao {
 		this.inventoryDao = inventoryDao;
 	}
 
+	/**
+	 * Abre (una sola vez por proceso) la factoria compartida de ObjectDB.
+	 */
 	@Override
 	public void connect() {
-		if (entityManagerFactory != null && entityManagerFactory.isOpen()
-				&& entityManager != null && entityManager.isOpen()) {
-			return;
-		}
-
-		entityManagerFactory = ObjectDbSupport.createEntityManagerFactory();
-		entityManager = entityManagerFactory.createEntityManager();
-		ObjectDbSupport.seedUsersIfEmpty(entityManager);
+		ObjectDbSupport.getSharedEntityManagerFactory();
 	}
 
+	/**
+	 * La factoria es compartida y se cierra al terminar el proceso: no hay nada
+	 * que liberar por instancia.
+	 */
 	@Override
 	public void disconnect() {
-		if (entityManager != null && entityManager.isOpen()) {
-			entityManager.close();
-		}
-		if (entityManagerFactory != null && entityManagerFactory.isOpen()) {
-			entityManagerFactory.close();
-		}
-		entityManager = null;
-		entityManagerFactory = null;
 	}
 
 	@Override
 	public Employee getEmployee(int employeeId, String password) {
-		if (entityManager == null || !entityManager.isOpen()) {
-			connect();
-		}
-
+		EntityManager entityManager = null;
 		try {
+			entityManager = ObjectDbSupport.borrowEntityManager();
 			Employee user = entityManager.find(Employee.class, employeeId);
 			if (user == null || !password.equals(user.getPassword())) {
 				return null;
@@ -67,6 +57,8 @@ public class DaoImplObjectDB implements Dao {
 			System.err.println("Error consultando usuario en ObjectDB");
 			ex.printStackTrace();
 			return null;
+		} finally {
+			ObjectDbSupport.releaseEntityManager(entityManager);
 		}
 	}
 
@@ -75,6 +67,21 @@ public class DaoImplObjectDB implements Dao {
 		return inventoryDao.getInventory();
 	}
 
+	@Override
+	public long streamInventory(int fetchSize, Consumer<Product> consumer) {
+		return inventoryDao.streamInventory(fetchSize, consumer);
+	}
+
+	@Override
+	public ArrayList<Product> getInventoryPage(int afterId, int limit) {
+		return inventoryDao.getInventoryPage(afterId, limit);
+	}
+
+	@Override
+	public Product findProductByName(String name) {
+		return inventoryDao.findProductByName(name);
+	}
+
 	@Override
 	public boolean writeInventory(ArrayList<Product> inventory) {
 		return inventoryDao.writeInventory(inventory);
@@ -94,4 +101,24 @@ public class DaoImplObjectDB implements Dao {
 	public void deleteProduct(int productId) {
 		inventoryDao.deleteProduct(productId);
 	}
+
+	@Override
+	public BatchResult addProducts(List<Product> products) {
+		return inventoryDao.addProducts(products);
+	}
+
+	@Override
+	public BatchResult updateProducts(List<Product> products) {
+		return inventoryDao.updateProducts(products);
+	}
+
+	@Override
+	public BatchResult deleteProducts(List<Integer> productIds) {
+		return inventoryDao.deleteProducts(productIds);
+	}
+
+	@Override
+	public int adjustStock(int productId, int delta) {
+		return inventoryDao.adjustStock(productId, delta);
+	}
 }
@@ -0,0 +1,379 @@
+package dao;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+
+import model.Employee;
+import model.Product;
+import model.ProductHistory;
+import utils.ObjectDbSupport;
+
+/**
+ * Implementacion DAO completa sobre ObjectDB embebido (objects/inventory.odb,
+ * configurable con -Dshop.objectdb.inventoryPath).
+ *
+ * Inventario e historico viven en el propio proceso, sin servidor ni red: pensado
+ * para tiendas pequenas de un solo terminal y para medir el coste del resto de
+ * backends. El nombre de Product y el producto y la fecha de ProductHistory estan
+ * indexados. La autenticacion usa la base de usuarios de {@link DaoImplObjectDB}.
+ *
+ * Las escrituras masivas van en una unica transaccion y vacian el contexto de
+ * persistencia cada BATCH_SIZE objetos (-Dshop.objectdb.batchSize, 1000 por
+ * defecto): si fallan, no queda nada escrito.
+ */
+public class DaoImplObjectDBInventory implements Dao {
+
+	private static final int BATCH_SIZE = Math.max(1, Integer.getInteger("shop.objectdb.batchSize", 1000));
+
+	private final Dao loginDao = new DaoImplObjectDB(this);
+
+	private EntityManagerFactory entityManagerFactory;
+
+	/** Resumen de la ultima exportacion historica */
+	private ExportReport lastExportReport;
+
+	@Override
+	public void connect() {
+		entityManagerFactory = ObjectDbSupport.getInventoryEntityManagerFactory();
+	}
+
+	/**
+	 * La factoria es compartida y se cierra al terminar el proceso.
+	 */
+	@Override
+	public void disconnect() {
+	}
+
+	@Override
+	public Employee getEmployee(int employeeId, String password) {
+		return loginDao.getEmployee(employeeId, password);
+	}
+
+	@Override
+	public ArrayList<Product> getInventory() {
+		ArrayList<Product> products = read(entityManager -> new ArrayList<>(entityManager
+				.createQuery("SELECT p FROM Product p ORDER BY p.id", Product.class)
+				.getResultList()));
+		return products == null ? new ArrayList<>() : products;
+	}
+
+	/**
+	 * Recorre el inventario por paginas de fetchSize productos ordenadas por id,
+	 * vaciando el contexto de persistencia entre paginas.
+	 */
+	@Override
+	public long streamInventory(int fetchSize, Consumer<Product> consumer) {
+		Long count = read(entityManager -> {
+			long total = 0;
+			int afterId = 0;
+			List<Product> page;
+			do {
+				page = page(entityManager, afterId, fetchSize);
+				for (Product product : page) {
+					consumer.accept(product);
+					afterId = product.getId();
+					total++;
+				}
+				entityManager.clear();
+			} while (page.size() == fetchSize);
+			return total;
+		});
+		return count == null ? 0 : count;
+	}
+
+	@Override
+	public ArrayList<Product> getInventoryPage(int afterId, int limit) {
+		ArrayList<Product> products = read(entityManager -> new ArrayList<>(page(entityManager, afterId, limit)));
+		return products == null ? new ArrayList<>() : products;
+	}
+
+	/**
+	 * Busca primero por nombre exacto (resuelto con el indice de name) y solo si
+	 * no hay coincidencia recorre el inventario sin distinguir mayusculas.
+	 */
+	@Override
+	public Product findProductByName(String name) {
+		return read(entityManager -> {
+			List<Product> exact = entityManager
+					.createQuery("SELECT p FROM Product p WHERE p.name = :name ORDER BY p.id", Product.class)
+					.setParameter("name", name)
+					.setMaxResults(1)
+					.getResultList();
+			if (!exact.isEmpty()) {
+				return exact.get(0);
+			}
+			List<Product> matches = entityManager
+					.createQuery("SELECT p FROM Product p WHERE LOWER(p.name) = :name ORDER BY p.id", Product.class)
+					.setParameter("name", name.toLowerCase(Locale.ROOT))
+					.setMaxResults(1)
+					.getResultList();
+			return matches.isEmpty() ? null : matches.get(0);
+		});
+	}
+
+	/**
+	 * Guarda la instantanea con el mismo created_at en todas las filas, en una
+	 * unica transaccion con flush/clear cada BATCH_SIZE objetos: una exportacion
+	 * fallida no deja una instantanea a medias.
+	 */
+	@Override
+	public boolean writeInventory(ArrayList<Product> inventory) {
+		long start = System.nanoTime();
+		Timestamp snapshotTime = new Timestamp(System.currentTimeMillis());
+		int chunks = 0;
+		EntityManager entityManager = open();
+		try {
+			entityManager.getTransaction().begin();
+			for (int from = 0; from < inventory.size(); from += BATCH_SIZE) {
+				int to = Math.min(from + BATCH_SIZE, inventory.size());
+				for (Product product : inventory.subList(from, to)) {
+					entityManager.persist(ProductHistory.fromProduct(product, snapshotTime));
+				}
+				entityManager.flush();
+				entityManager.clear();
+				chunks++;
+			}
+			entityManager.getTransaction().commit();
+		} catch (Exception ex) {
+			rollback(entityManager);
+			System.err.println("Error exportando inventario historico (ObjectDB)");
+			ex.printStackTrace();
+			return false;
+		} finally {
+			entityManager.close();
+		}
+		lastExportReport = new ExportReport(snapshotTime, inventory.size(), chunks,
+				(System.nanoTime() - start) / 1_000_000);
+		System.out.println(lastExportReport);
+		return true;
+	}
+
+	/**
+	 * @return resumen de la ultima exportacion correcta, o null si aun no se ha exportado
+	 */
+	public ExportReport getLastExportReport() {
+		return lastExportReport;
+	}
+
+	@Override
+	public void addProduct(Product product) {
+		write(entityManager -> entityManager.persist(product), "Error insertando producto (ObjectDB)");
+	}
+
+	@Override
+	public void updateProduct(Product product) {
+		write(entityManager -> copyInto(entityManager, product), "Error actualizando producto (ObjectDB)");
+	}
+
+	@Override
+	public void deleteProduct(int productId) {
+		write(entityManager -> entityManager.createQuery("DELETE FROM Product p WHERE p.id = :id")
+				.setParameter("id", productId)
+				.executeUpdate(), "Error eliminando producto (ObjectDB)");
+	}
+
+	@Override
+	public BatchResult addProducts(List<Product> products) {
+		return writeInBatches(products, (entityManager, product) -> {
+			entityManager.persist(product);
+			return true;
+		}, "Error insertando productos (ObjectDB)");
+	}
+
+	@Override
+	public BatchResult updateProducts(List<Product> products) {
+		return writeInBatches(products, DaoImplObjectDBInventory::copyInto,
+				"Error actualizando productos (ObjectDB)");
+	}
+
+	/**
+	 * Carga cada bloque de BATCH_SIZE ids y elimina los productos encontrados;
+	 * los ids que no existen se marcan como fallidos.
+	 */
+	@Override
+	public BatchResult deleteProducts(List<Integer> productIds) {
+		BatchResult result = new BatchResult(productIds.size());
+		if (productIds.isEmpty()) {
+			return result;
+		}
+		EntityManager entityManager = open();
+		try {
+			entityManager.getTransaction().begin();
+			Set<Integer> found = new HashSet<>();
+			for (int from = 0; from < productIds.size(); from += BATCH_SIZE) {
+				List<Integer> chunk = productIds.subList(from, Math.min(from + BATCH_SIZE, productIds.size()));
+				for (Product product : entityManager
+						.createQuery("SELECT p FROM Product p WHERE p.id IN :ids", Product.class)
+						.setParameter("ids", chunk)
+						.getResultList()) {
+					found.add(product.getId());
+					entityManager.remove(product);
+				}
+				entityManager.flush();
+				entityManager.clear();
+			}
+			entityManager.getTransaction().commit();
+			Set<Integer> deleted = new HashSet<>();
+			for (int i = 0; i < productIds.size(); i++) {
+				if (found.contains(productIds.get(i)) && deleted.add(productIds.get(i))) {
+					result.markApplied(i);
+				} else {
+					result.markFailed(i, "Producto no encontrado");
+				}
+			}
+		} catch (Exception ex) {
+			rollback(entityManager);
+			System.err.println("Error eliminando productos (ObjectDB)");
+			ex.printStackTrace();
+			result.markAllFailed(ex.getMessage());
+		} finally {
+			entityManager.close();
+		}
+		return result;
+	}
+
+	/**
+	 * Bloquea el producto durante la transaccion, de modo que dos ajustes
+	 * simultaneos se aplican uno detras de otro.
+	 */
+	@Override
+	public int adjustStock(int productId, int delta) {
+		EntityManager entityManager = open();
+		try {
+			entityManager.getTransaction().begin();
+			Product product = entityManager.find(Product.class, productId, LockModeType.PESSIMISTIC_WRITE);
+			if (product == null || product.getStock() + delta < 0) {
+				entityManager.getTransaction().rollback();
+				return STOCK_NOT_ADJUSTED;
+			}
+			int newStock = product.getStock() + delta;
+			product.setStock(newStock);
+			if (newStock == 0) {
+				product.setAvailable(false);
+			}
+			entityManager.getTransaction().commit();
+			return newStock;
+		} catch (Exception ex) {
+			rollback(entityManager);
+			System.err.println("Error ajustando stock (ObjectDB)");
+			ex.printStackTrace();
+			return STOCK_NOT_ADJUSTED;
+		} finally {
+			entityManager.close();
+		}
+	}
+
+	private static List<Product> page(EntityManager entityManager, int afterId, int limit) {
+		return entityManager
+				.createQuery("SELECT p FROM Product p WHERE p.id > :afterId ORDER BY p.id", Product.class)
+				.setParameter("afterId", afterId)
+				.setMaxResults(limit)
+				.getResultList();
+	}
+
+	/**
+	 * Copia los datos del producto sobre el objeto almacenado con el mismo id.
+	 *
+	 * @return false si no hay ningun producto con ese id
+	 */
+	private static boolean copyInto(EntityManager entityManager, Product product) {
+		Product stored = entityManager.find(Product.class, product.getId());
+		if (stored == null) {
+			return false;
+		}
+		stored.setName(product.getName());
+		stored.setPrice(product.getPrice());
+		stored.setAvailable(product.isAvailable());
+		stored.setStock(product.getStock());
+		return true;
+	}
+
+	private EntityManager open() {
+		if (entityManagerFactory == null || !entityManagerFactory.isOpen()) {
+			connect();
+		}
+		return entityManagerFactory.createEntityManager();
+	}
+
+	private <T> T read(Function<EntityManager, T> query) {
+		EntityManager entityManager = open();
+		try {
+			return query.apply(entityManager);
+		} catch (Exception ex) {
+			System.err.println("Error consultando inventario (ObjectDB)");
+			ex.printStackTrace();
+			return null;
+		} finally {
+			entityManager.close();
+		}
+	}
+
+	private void write(Consumer<EntityManager> operation, String errorMessage) {
+		EntityManager entityManager = open();
+		try {
+			entityManager.getTransaction().begin();
+			operation.accept(entityManager);
+			entityManager.getTransaction().commit();
+		} catch (Exception ex) {
+			rollback(entityManager);
+			System.err.println(errorMessage);
+			ex.printStackTrace();
+		} finally {
+			entityManager.close();
+		}
+	}
+
+	/**
+	 * Aplica la operacion en una unica transaccion, vaciando el contexto de
+	 * persistencia cada BATCH_SIZE productos. Los productos para los que la
+	 * operacion devuelve false (no existen) se marcan como fallidos.
+	 */
+	private BatchResult writeInBatches(List<Product> products,
+			BiPredicate<EntityManager, Product> operation, String errorMessage) {
+		BatchResult result = new BatchResult(products.size());
+		if (products.isEmpty()) {
+			return result;
+		}
+		EntityManager entityManager = open();
+		try {
+			entityManager.getTransaction().begin();
+			for (int i = 0; i < products.size(); i++) {
+				if (operation.test(entityManager, products.get(i))) {
+					result.markApplied(i);
+				} else {
+					result.markFailed(i, "Producto no encontrado");
+				}
+				if ((i + 1) % BATCH_SIZE == 0) {
+					entityManager.flush();
+					entityManager.clear();
+				}
+			}
+			entityManager.getTransaction().commit();
+		} catch (Exception ex) {
+			rollback(entityManager);
+			System.err.println(errorMessage);
+			ex.printStackTrace();
+			result.markAllFailed(ex.getMessage());
+		} finally {
+			entityManager.close();
+		}
+		return result;
+	}
+
+	private static void rollback(EntityManager entityManager) {
+		if (entityManager.getTransaction().isActive()) {
+			entityManager.getTransaction().rollback();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package dao;
+
+import java.sql.Timestamp;
+
+/**
+ * Resumen de una exportación del inventario a la tabla histórica.
+ * Sirve para dimensionar las ventanas de exportación (filas por segundo).
+ *
+ * @author Marc Muntané Clarà
+ * @version 2.0
+ */
+public class ExportReport {
+
+	/** Instante común a todas las filas de la instantánea */
+	private final Timestamp snapshotTime;
+
+	/** Filas escritas */
+	private final long rows;
+
+	/** Bloques enviados a la base de datos */
+	private final int chunks;
+
+	/** Duración total de la exportación, commit incluido */
+	private final long elapsedMillis;
+
+	public ExportReport(Timestamp snapshotTime, long rows, int chunks, long elapsedMillis) {
+		this.snapshotTime = snapshotTime;
+		this.rows = rows;
+		this.chunks = chunks;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public Timestamp getSnapshotTime() {
+		return snapshotTime;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public int getChunks() {
+		return chunks;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * @return filas exportadas por segundo (todas las filas si ha tardado menos de 1 ms)
+	 */
+	public double getRowsPerSecond() {
+		return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "Exportacion " + snapshotTime + ": " + rows + " filas en " + chunks + " bloques, " + elapsedMillis
+				+ " ms (" + String.format("%.0f", getRowsPerSecond()) + " filas/s)";
+	}
+}
@@ -0,0 +1,88 @@
+package dao;
+
+/**
+ * Asignador de identificadores por bloques (hi-lo).
+ *
+ * Reserva en el almacenamiento un bloque de ids consecutivos con una única
+ * operación atómica y los reparte en memoria, de modo que asignar un id cuesta
+ * O(1) y dos terminales nunca reciben el mismo. Los ids de un bloque que no
+ * llegan a usarse (por ejemplo, al cerrar la aplicación) se pierden: puede haber
+ * huecos, pero no duplicados.
+ *
+ * El tamaño del bloque se configura con -Dshop.ids.blockSize (1000 por defecto).
+ *
+ * @author Marc Muntané Clarà
+ * @version 2.0
+ */
+public class IdBlockAllocator {
+
+	public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+	/**
+	 * Reserva atómica de bloques en el almacenamiento.
+	 */
+	@FunctionalInterface
+	public interface BlockSource {
+
+		/**
+		 * Avanza el contador persistente en {@code blockSize} unidades.
+		 *
+		 * @param blockSize número de ids a reservar
+		 * @return el último id del bloque reservado (el contador tras avanzar)
+		 * @throws Exception si no se puede reservar el bloque
+		 */
+		int reserveBlock(int blockSize) throws Exception;
+	}
+
+	private final BlockSource source;
+	private final int blockSize;
+
+	/** Siguiente id a entregar */
+	private int next = 1;
+
+	/** Último id del bloque reservado (next > last cuando no queda ninguno) */
+	private int last = 0;
+
+	public IdBlockAllocator(BlockSource source) {
+		this(source, Integer.getInteger("shop.ids.blockSize", DEFAULT_BLOCK_SIZE));
+	}
+
+	public IdBlockAllocator(BlockSource source, int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("El tamaño de bloque de ids debe ser positivo: " + blockSize);
+		}
+		this.source = source;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * Devuelve el siguiente id libre, reservando un bloque nuevo si el actual se ha agotado.
+	 *
+	 * @return id único
+	 * @throws IllegalStateException si no se puede reservar un bloque nuevo
+	 */
+	public synchronized int nextId() {
+		if (next > last) {
+			int reservedLast;
+			try {
+				reservedLast = source.reserveBlock(blockSize);
+			} catch (Exception ex) {
+				throw new IllegalStateException("No se ha podido reservar un bloque de ids", ex);
+			}
+			last = reservedLast;
+			next = reservedLast - blockSize + 1;
+		}
+		return next++;
+	}
+
+	/**
+	 * @return ids que quedan en memoria antes de reservar otro bloque
+	 */
+	public synchronized int getRemainingInBlock() {
+		return Math.max(0, last - next + 1);
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+}
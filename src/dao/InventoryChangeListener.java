@@ -0,0 +1,42 @@
+package dao;
+
+import model.Product;
+
+/**
+ * Recibe los cambios del inventario que otras terminales aplican en el almacenamiento.
+ * Los métodos se llaman desde el hilo del watcher, nunca a la vez.
+ *
+ * @author Marc Muntané Clarà
+ * @version 2.0
+ */
+public interface InventoryChangeListener {
+
+	/**
+	 * Un producto se ha insertado o modificado.
+	 *
+	 * @param product estado completo del producto tras el cambio
+	 */
+	public void productChanged(Product product);
+
+	/**
+	 * Un producto se ha eliminado.
+	 *
+	 * @param productId identificador del producto eliminado
+	 */
+	public void productDeleted(int productId);
+
+	/**
+	 * Los cambios recibidos hasta ahora están aplicados y se puede reanudar desde este
+	 * punto. Es el momento de persistir el token junto con el estado que refleja.
+	 *
+	 * @param resumeToken token de reanudación serializado
+	 */
+	public void resumeTokenChanged(String resumeToken);
+
+	/**
+	 * No se pueden reanudar los cambios (token caducado, colección eliminada o
+	 * cambio sin información suficiente): hay que recargar el inventario completo.
+	 * Los cambios posteriores a esta llamada se siguen entregando.
+	 */
+	public void resyncRequired();
+}
@@ -0,0 +1,276 @@
+package dao;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import exception.InventoryFormatException;
+import model.Product;
+
+/**
+ * Lector del fichero de inventario (formato
+ * {@code Product:<nombre>;Wholesaler Price:<precio>;Stock:<unidades>;Id:<id>}).
+ *
+ * Recorre el fichero mapeado en memoria por ventanas y localiza los separadores
+ * byte a byte: no crea una cadena por línea ni arrays intermedios, y precio,
+ * stock e id se convierten directamente desde los bytes. La única cadena que se
+ * crea por producto es su nombre.
+ *
+ * Igual que el lector anterior, los campos se reconocen por su posición, las
+ * secciones sobrantes se ignoran y, si falta el id, se usa el número de línea.
+ * Las líneas vacías se saltan. Cualquier otra línea mal formada detiene la
+ * lectura con una {@link InventoryFormatException} que indica la línea y el campo.
+ */
+public final class InventoryFileParser {
+
+	/** Tamaño de cada ventana mapeada; una línea no puede superarlo */
+	static final int DEFAULT_WINDOW_BYTES = 64 * 1024 * 1024;
+
+	private static final String[] FIELD_NAMES = { "nombre", "precio", "stock", "id" };
+
+	/** Potencias de 10 representables exactamente como double */
+	private static final double[] POWERS_OF_TEN = new double[16];
+
+	/** Dígitos a partir de los cuales la mantisa podría no ser exacta (2^53 tiene 16) */
+	private static final int MAX_FAST_DIGITS = 15;
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private final int windowBytes;
+
+	public InventoryFileParser() {
+		this(DEFAULT_WINDOW_BYTES);
+	}
+
+	InventoryFileParser(int windowBytes) {
+		if (windowBytes <= 0) {
+			throw new IllegalArgumentException("Tamaño de ventana no válido: " + windowBytes);
+		}
+		this.windowBytes = windowBytes;
+	}
+
+	/**
+	 * Lee el fichero completo entregando cada producto al consumidor en orden.
+	 *
+	 * @param file fichero de inventario
+	 * @param consumer destino de los productos
+	 * @return productos leídos
+	 * @throws InventoryFormatException si una línea no tiene el formato esperado
+	 * @throws IOException si no se puede leer el fichero
+	 */
+	public long parse(Path file, Consumer<Product> consumer) throws IOException {
+		long count = 0;
+		long lineNumber = 0;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				int length = (int) Math.min(windowBytes, size - position);
+				boolean lastWindow = position + length == size;
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+				int lineStart = 0;
+				for (int i = 0; i < length; i++) {
+					if (buffer.get(i) == '\n') {
+						lineNumber++;
+						Product product = parseLine(buffer, lineStart, i, lineNumber);
+						if (product != null) {
+							consumer.accept(product);
+							count++;
+						}
+						lineStart = i + 1;
+					}
+				}
+
+				if (lastWindow) {
+					// última línea sin salto de línea final
+					if (lineStart < length) {
+						lineNumber++;
+						Product product = parseLine(buffer, lineStart, length, lineNumber);
+						if (product != null) {
+							consumer.accept(product);
+							count++;
+						}
+					}
+					position = size;
+				} else if (lineStart == 0) {
+					throw new InventoryFormatException(lineNumber + 1,
+							"la línea supera el tamaño de ventana de lectura (" + windowBytes + " bytes)");
+				} else {
+					// la línea incompleta se vuelve a leer al principio de la siguiente ventana
+					position += lineStart;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return el producto de la línea [start, end), o null si la línea está vacía
+	 */
+	private static Product parseLine(MappedByteBuffer buffer, int start, int end, long lineNumber)
+			throws InventoryFormatException {
+		if (end > start && buffer.get(end - 1) == '\r') {
+			end--;
+		}
+		if (isBlank(buffer, start, end)) {
+			return null;
+		}
+
+		int id = (int) Math.min(lineNumber, Integer.MAX_VALUE);
+		String name = "";
+		double price = 0.0;
+		int stock = 0;
+
+		int field = 0;
+		int sectionStart = start;
+		while (sectionStart < end && field < FIELD_NAMES.length) {
+			int sectionEnd = indexOf(buffer, (byte) ';', sectionStart, end);
+			int colon = indexOf(buffer, (byte) ':', sectionStart, sectionEnd);
+			if (colon == sectionEnd) {
+				throw new InventoryFormatException(lineNumber, "falta ':' en el campo " + FIELD_NAMES[field]);
+			}
+			int valueStart = colon + 1;
+			switch (field) {
+			case 0:
+				name = decode(buffer, valueStart, sectionEnd);
+				break;
+			case 1:
+				price = parseDecimal(buffer, valueStart, sectionEnd, lineNumber);
+				break;
+			case 2:
+				stock = parseInt(buffer, valueStart, sectionEnd, lineNumber, FIELD_NAMES[field]);
+				break;
+			default:
+				id = parseInt(buffer, valueStart, sectionEnd, lineNumber, FIELD_NAMES[field]);
+				break;
+			}
+			field++;
+			sectionStart = sectionEnd + 1;
+		}
+		return new Product(id, name, price, true, stock);
+	}
+
+	private static int parseInt(MappedByteBuffer buffer, int start, int end, long lineNumber, String field)
+			throws InventoryFormatException {
+		start = skipSpaces(buffer, start, end);
+		end = trimSpaces(buffer, start, end);
+		boolean negative = start < end && buffer.get(start) == '-';
+		int i = negative || (start < end && buffer.get(start) == '+') ? start + 1 : start;
+		if (i == end) {
+			throw invalidNumber(buffer, start, end, lineNumber, field);
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				throw invalidNumber(buffer, start, end, lineNumber, field);
+			}
+			value = value * 10 + digit;
+			if (value > (long) Integer.MAX_VALUE + 1) {
+				throw invalidNumber(buffer, start, end, lineNumber, field);
+			}
+		}
+		value = negative ? -value : value;
+		if (value > Integer.MAX_VALUE) {
+			throw invalidNumber(buffer, start, end, lineNumber, field);
+		}
+		return (int) value;
+	}
+
+	/**
+	 * Convierte decimales sencillos (dígitos y un punto, hasta 15 dígitos)
+	 * dividiendo la mantisa entera por una potencia de 10: ambos operandos son
+	 * exactos y la división se redondea correctamente, así que el resultado es
+	 * el mismo que el de Double.parseDouble. El resto de formas (exponente,
+	 * más dígitos) se delega en Double.parseDouble.
+	 */
+	private static double parseDecimal(MappedByteBuffer buffer, int start, int end, long lineNumber)
+			throws InventoryFormatException {
+		start = skipSpaces(buffer, start, end);
+		end = trimSpaces(buffer, start, end);
+		boolean negative = start < end && buffer.get(start) == '-';
+		int i = negative || (start < end && buffer.get(start) == '+') ? start + 1 : start;
+
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean seenPoint = false;
+		boolean simple = i < end;
+		for (; i < end && simple; i++) {
+			byte b = buffer.get(i);
+			if (b >= '0' && b <= '9') {
+				mantissa = mantissa * 10 + (b - '0');
+				digits++;
+				if (seenPoint) {
+					scale++;
+				}
+			} else if (b == '.' && !seenPoint) {
+				seenPoint = true;
+			} else {
+				simple = false;
+			}
+		}
+		if (simple && digits > 0 && digits <= MAX_FAST_DIGITS) {
+			double value = scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+			return negative ? -value : value;
+		}
+		try {
+			return Double.parseDouble(decode(buffer, start, end));
+		} catch (NumberFormatException ex) {
+			throw new InventoryFormatException(lineNumber,
+					"precio no válido '" + decode(buffer, start, end) + "'", ex);
+		}
+	}
+
+	private static InventoryFormatException invalidNumber(MappedByteBuffer buffer, int start, int end,
+			long lineNumber, String field) {
+		return new InventoryFormatException(lineNumber, field + " no válido '" + decode(buffer, start, end) + "'");
+	}
+
+	private static String decode(MappedByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		buffer.get(start, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int indexOf(MappedByteBuffer buffer, byte value, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) == value) {
+				return i;
+			}
+		}
+		return end;
+	}
+
+	private static boolean isBlank(MappedByteBuffer buffer, int start, int end) {
+		return skipSpaces(buffer, start, end) == end;
+	}
+
+	private static int skipSpaces(MappedByteBuffer buffer, int start, int end) {
+		while (start < end && isSpace(buffer.get(start))) {
+			start++;
+		}
+		return start;
+	}
+
+	private static int trimSpaces(MappedByteBuffer buffer, int start, int end) {
+		while (end > start && isSpace(buffer.get(end - 1))) {
+			end--;
+		}
+		return end;
+	}
+
+	private static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+}
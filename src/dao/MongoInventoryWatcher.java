@@ -0,0 +1,229 @@
+package dao;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.FullDocumentBeforeChange;
+
+import model.Product;
+
+/**
+ * Hilo que sigue el change stream de la colección inventory y entrega los cambios
+ * a un {@link InventoryChangeListener}.
+ *
+ * Tras aplicar cada lote (o cuando el cursor queda en espera) notifica el token de
+ * reanudación; si la conexión se corta, vuelve a abrir el stream desde el último
+ * token en lugar de perder cambios. Si el servidor ya no tiene el historial para
+ * ese token, pide una recarga completa y continúa desde el momento actual.
+ *
+ * Requiere un replica set (los servidores aislados no tienen change streams).
+ */
+public class MongoInventoryWatcher implements AutoCloseable {
+
+	/** Códigos de error del servidor que impiden reanudar desde un token */
+	private static final int CHANGE_STREAM_FATAL_ERROR = 280;
+	private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+	/** Cambios aplicados entre notificaciones del token */
+	private static final int TOKEN_NOTIFY_EVENTS = 100;
+
+	/** Espera máxima del servidor por cada tryNext */
+	private static final long MAX_AWAIT_MS = 1_000;
+
+	/** Pausa antes de reabrir el stream tras un error */
+	private static final long RETRY_DELAY_MS = 1_000;
+
+	private final MongoCollection<Product> collection;
+	private final InventoryChangeListener listener;
+	private final Thread thread;
+
+	private volatile boolean running = true;
+	private volatile MongoChangeStreamCursor<ChangeStreamDocument<Product>> cursor;
+
+	/** Último token notificado al listener */
+	private BsonDocument resumeToken;
+
+	MongoInventoryWatcher(MongoCollection<Product> collection, String resumeToken,
+			InventoryChangeListener listener) {
+		this.collection = collection;
+		this.listener = listener;
+		this.resumeToken = resumeToken == null ? null : BsonDocument.parse(resumeToken);
+		this.thread = new Thread(this::run, "mongo-inventory-watcher");
+		this.thread.setDaemon(true);
+	}
+
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * @return true mientras el watcher siga activo
+	 */
+	public boolean isRunning() {
+		return running && thread.isAlive();
+	}
+
+	/**
+	 * Detiene el watcher y espera a que termine el hilo.
+	 */
+	@Override
+	public void close() {
+		running = false;
+		MongoChangeStreamCursor<ChangeStreamDocument<Product>> current = cursor;
+		if (current != null) {
+			try {
+				current.close();
+			} catch (RuntimeException ex) {
+				// el hilo del watcher ya estaba cerrando el cursor
+			}
+		}
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run() {
+		while (running) {
+			try {
+				follow();
+			} catch (MongoException ex) {
+				if (!running) {
+					return;
+				}
+				if (ex.getCode() == CHANGE_STREAM_HISTORY_LOST || ex.getCode() == CHANGE_STREAM_FATAL_ERROR) {
+					System.err.println("No se puede reanudar el change stream del inventario: se recarga");
+					resumeToken = null;
+					resync();
+				} else {
+					System.err.println("Error en el change stream del inventario, se reintenta");
+					ex.printStackTrace();
+					pause();
+				}
+			} catch (RuntimeException ex) {
+				if (!running) {
+					return;
+				}
+				System.err.println("Error aplicando un cambio del inventario");
+				ex.printStackTrace();
+				pause();
+			}
+		}
+	}
+
+	/**
+	 * Abre el stream desde el último token y aplica cambios hasta que se cierra.
+	 */
+	private void follow() {
+		var stream = collection.watch()
+				.fullDocument(FullDocument.UPDATE_LOOKUP)
+				.fullDocumentBeforeChange(FullDocumentBeforeChange.WHEN_AVAILABLE)
+				.maxAwaitTime(MAX_AWAIT_MS, TimeUnit.MILLISECONDS);
+		if (resumeToken != null) {
+			stream = stream.startAfter(resumeToken);
+		}
+		try (MongoChangeStreamCursor<ChangeStreamDocument<Product>> opened = stream.cursor()) {
+			cursor = opened;
+			int pending = 0;
+			while (running) {
+				ChangeStreamDocument<Product> change = opened.tryNext();
+				if (change != null) {
+					if (!apply(change)) {
+						// el stream ya no es válido: se reabre desde el momento actual
+						resumeToken = null;
+						resync();
+						return;
+					}
+					pending++;
+				}
+				if (change == null || pending >= TOKEN_NOTIFY_EVENTS) {
+					notifyToken(opened.getResumeToken());
+					pending = 0;
+				}
+			}
+		} finally {
+			cursor = null;
+		}
+	}
+
+	/**
+	 * Aplica un cambio al listener.
+	 *
+	 * @return false si el cambio obliga a recargar el inventario
+	 */
+	private boolean apply(ChangeStreamDocument<Product> change) {
+		switch (change.getOperationType()) {
+		case INSERT, UPDATE, REPLACE -> {
+			Product product = change.getFullDocument();
+			if (product != null) {
+				listener.productChanged(product);
+			}
+			// sin documento completo: se borró después y llegará su DELETE
+			return true;
+		}
+		case DELETE -> {
+			Product before = change.getFullDocumentBeforeChange();
+			if (before == null) {
+				// sin pre-image no se sabe qué producto era
+				return false;
+			}
+			listener.productDeleted(before.getId());
+			return true;
+		}
+		case DROP, DROP_DATABASE, RENAME, INVALIDATE -> {
+			return false;
+		}
+		default -> {
+			return true;
+		}
+		}
+	}
+
+	/**
+	 * Pide la recarga completa después de abrir el nuevo stream, para que no se
+	 * pierdan los cambios que ocurran durante la recarga.
+	 */
+	private void resync() {
+		try (MongoChangeStreamCursor<ChangeStreamDocument<Product>> fresh = collection.watch().cursor()) {
+			resumeToken = fresh.getResumeToken();
+		}
+		listener.resyncRequired();
+		if (resumeToken != null) {
+			listener.resumeTokenChanged(resumeToken.toJson());
+		}
+	}
+
+	private void notifyToken(BsonDocument token) {
+		if (token != null && !token.equals(resumeToken)) {
+			resumeToken = token;
+			listener.resumeTokenChanged(token.toJson());
+		}
+	}
+
+	private void pause() {
+		try {
+			Thread.sleep(RETRY_DELAY_MS);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			running = false;
+		}
+	}
+
+	/**
+	 * Activa las pre-images en la colección para que los DELETE incluyan el producto
+	 * eliminado. Es idempotente.
+	 */
+	static void enablePreImages(MongoDatabase database, String collectionName) {
+		database.runCommand(new Document("collMod", collectionName)
+				.append("changeStreamPreAndPostImages", new Document("enabled", true)));
+	}
+}
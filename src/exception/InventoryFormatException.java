@@ -0,0 +1,29 @@
+package exception;
+
+import java.io.IOException;
+
+/**
+ * Linea mal formada en el fichero de inventario.
+ */
+public class InventoryFormatException extends IOException {
+	private static final long serialVersionUID = 1L;
+	private final long lineNumber;
+
+	public InventoryFormatException(long lineNumber, String message) {
+		super("Linea " + lineNumber + ": " + message);
+		this.lineNumber = lineNumber;
+	}
+
+	public InventoryFormatException(long lineNumber, String message, Throwable cause) {
+		super("Linea " + lineNumber + ": " + message, cause);
+		this.lineNumber = lineNumber;
+	}
+
+	/**
+	 * @return numero de linea (empezando en 1) donde se ha encontrado el error
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+}
@@ -0,0 +1,110 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import model.Product;
+
+/**
+ * Copia local del inventario junto con el token de reanudación del change stream.
+ *
+ * Al arrancar, la tienda carga esta copia y reanuda los cambios desde el token en
+ * lugar de volver a leer todo el inventario. Inventario y token se escriben juntos
+ * (en un fichero temporal que luego se renombra) para que siempre correspondan.
+ *
+ * @author Marc Muntané Clarà
+ * @version 2.0
+ */
+public final class InventorySnapshotFile {
+
+	/** "SHOP" en ASCII */
+	private static final int MAGIC = 0x53484F50;
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Contenido leído de la copia local.
+	 */
+	public record Snapshot(String resumeToken, List<Product> products) {
+	}
+
+	private InventorySnapshotFile() {
+	}
+
+	/**
+	 * Guarda el inventario y el token en el fichero indicado.
+	 *
+	 * @param file fichero destino
+	 * @param resumeToken token que refleja el estado del inventario
+	 * @param products productos del inventario
+	 * @throws IOException si no se puede escribir
+	 */
+	public static void write(Path file, String resumeToken, Collection<Product> products) throws IOException {
+		Path parent = file.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(resumeToken);
+			out.writeInt(products.size());
+			for (Product product : products) {
+				out.writeInt(product.getId());
+				out.writeUTF(product.getName() == null ? "" : product.getName());
+				out.writeDouble(product.getPrice());
+				out.writeBoolean(product.isAvailable());
+				out.writeInt(product.getStock());
+			}
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Lee la copia local.
+	 *
+	 * @param file fichero origen
+	 * @return la copia, o null si no existe o no es válida
+	 */
+	public static Snapshot read(Path file) {
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				return null;
+			}
+			String resumeToken = in.readUTF();
+			int size = in.readInt();
+			List<Product> products = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				products.add(new Product(in.readInt(), in.readUTF(), in.readDouble(), in.readBoolean(), in.readInt()));
+			}
+			return new Snapshot(resumeToken, products);
+		} catch (IOException e) {
+			System.err.println("Copia local del inventario no valida: " + file);
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Borra la copia local (por ejemplo, cuando el token ya no sirve).
+	 */
+	public static void delete(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
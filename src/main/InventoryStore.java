@@ -0,0 +1,348 @@
+package main;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+
+import model.Product;
+
+/**
+ * Almacén en memoria del inventario de la tienda.
+ * Mantiene los productos en orden de inserción junto con índices por id y por
+ * nombre normalizado, de modo que altas, bajas y búsquedas cuestan O(1)
+ * independientemente del tamaño del catálogo.
+ *
+ * La capacidad máxima es configurable (-Dshop.inventory.capacity) para acotar la
+ * memoria en terminales pequeños; por defecto no hay límite.
+ *
+ * Es thread-safe: el hilo que aplica los cambios de otras terminales y la
+ * interfaz pueden usarlo a la vez.
+ *
+ * @author Marc Muntané Clarà
+ * @version 2.0
+ */
+public class InventoryStore implements Iterable<Product> {
+
+	/** Capacidad usada cuando no se configura ningún límite */
+	public static final int UNLIMITED = Integer.MAX_VALUE;
+
+	/**
+	 * Bytes estimados por producto: objeto Product, Amount, claves indexadas y
+	 * entradas de los índices. Es una cifra fija calculada a mano, no una medida.
+	 */
+	private static final long ESTIMATED_BYTES_PER_PRODUCT = 256;
+
+	/** Bytes estimados por carácter del nombre (cadenas compactas Latin-1) */
+	private static final long ESTIMATED_BYTES_PER_NAME_CHAR = 1;
+
+	/** Capacidad máxima de productos */
+	private final int capacity;
+
+	/**
+	 * Productos en orden de inserción (identidad de objeto), con el id y el nombre
+	 * con los que están indexados para poder reindexarlos sin recorrer el almacén
+	 */
+	private final LinkedHashMap<Product, IndexedKeys> products;
+
+	/** Índice por identificador */
+	private final HashMap<Integer, Product> productsById;
+
+	/** Índice por nombre normalizado: primer producto con ese nombre */
+	private final HashMap<String, Product> productsByName;
+
+	/** Productos con nombre repetido que esperan turno en el índice por nombre */
+	private final HashMap<String, ArrayDeque<Product>> duplicatedNames = new HashMap<>();
+
+	/** Mayor id visto, para generar el siguiente sin recorrer el inventario */
+	private int maxId;
+
+	/**
+	 * Crea un almacén con la capacidad configurada en shop.inventory.capacity.
+	 */
+	public InventoryStore() {
+		this(Integer.getInteger("shop.inventory.capacity", UNLIMITED));
+	}
+
+	/**
+	 * Crea un almacén con una capacidad máxima concreta.
+	 *
+	 * @param capacity número máximo de productos
+	 */
+	public InventoryStore(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("La capacidad del inventario debe ser positiva: " + capacity);
+		}
+		this.capacity = capacity;
+		int initialCapacity = capacity == UNLIMITED ? 16 : Math.min(capacity, 1 << 16);
+		this.products = new LinkedHashMap<>(initialCapacity);
+		this.productsById = new HashMap<>(initialCapacity);
+		this.productsByName = new HashMap<>(initialCapacity);
+	}
+
+	/**
+	 * Añade un producto si queda capacidad y su id no lo tiene ya otro producto
+	 * (los productos sin id todavía, con id 0, se admiten siempre).
+	 *
+	 * @param product producto a añadir
+	 * @return false si el almacén está lleno, el producto ya estaba o su id está
+	 *         repetido
+	 */
+	public synchronized boolean add(Product product) {
+		if (product == null || isFull() || products.containsKey(product)
+				|| (product.getId() > 0 && productsById.containsKey(product.getId()))) {
+			return false;
+		}
+		IndexedKeys keys = new IndexedKeys();
+		products.put(product, keys);
+		indexId(product, keys);
+		indexName(product, keys);
+		return true;
+	}
+
+	/**
+	 * Quita un producto del almacén.
+	 *
+	 * @param product producto a quitar
+	 * @return true si el producto estaba en el almacén
+	 */
+	public synchronized boolean remove(Product product) {
+		IndexedKeys keys = product == null ? null : products.remove(product);
+		if (keys == null) {
+			return false;
+		}
+		productsById.remove(keys.id, product);
+		unindexName(keys.name, product);
+		return true;
+	}
+
+	/**
+	 * Quita el producto con el id indicado.
+	 *
+	 * @param id identificador del producto
+	 * @return el producto eliminado, o null si no existía
+	 */
+	public synchronized Product removeById(int id) {
+		Product product = productsById.get(id);
+		if (product != null) {
+			remove(product);
+		}
+		return product;
+	}
+
+	/**
+	 * Sustituye todo el contenido del almacén.
+	 * Los productos que no caben en la capacidad configurada o que repiten el id
+	 * de uno anterior se descartan.
+	 *
+	 * @param newProducts productos a cargar
+	 * @return número de productos descartados
+	 */
+	public synchronized int replaceAll(Collection<Product> newProducts) {
+		clear();
+		int discarded = 0;
+		for (Product product : newProducts) {
+			if (!add(product) && product != null) {
+				discarded++;
+			}
+		}
+		return discarded;
+	}
+
+	/**
+	 * Aplica el estado de un producto recibido del almacenamiento: actualiza en su
+	 * sitio el producto con el mismo id (las referencias existentes siguen siendo
+	 * válidas) o lo añade si no existía.
+	 *
+	 * @param source estado del producto
+	 * @return false si era nuevo y no cabía en la capacidad configurada
+	 */
+	public synchronized boolean upsert(Product source) {
+		Product existing = productsById.get(source.getId());
+		if (existing == null) {
+			return add(source);
+		}
+		existing.setName(source.getName());
+		existing.setPrice(source.getPrice());
+		existing.setAvailable(source.isAvailable());
+		existing.setStock(source.getStock());
+		reindex(existing);
+		return true;
+	}
+
+	public synchronized void clear() {
+		products.clear();
+		productsById.clear();
+		productsByName.clear();
+		duplicatedNames.clear();
+		maxId = 0;
+	}
+
+	/**
+	 * Busca un producto por nombre sin distinguir mayúsculas.
+	 * Con nombres repetidos devuelve el primero que se añadió.
+	 */
+	public synchronized Product findByName(String name) {
+		return name == null ? null : productsByName.get(normalizeName(name));
+	}
+
+	public synchronized Product findById(int id) {
+		return productsById.get(id);
+	}
+
+	public synchronized boolean contains(Product product) {
+		return products.containsKey(product);
+	}
+
+	/**
+	 * Vuelve a indexar un producto cuyo nombre o id ha cambiado tras añadirlo.
+	 * Solo se tocan las entradas del id y el nombre anteriores y los nuevos; si el
+	 * nuevo nombre ya lo tenía otro producto, este queda detrás de él. Si el nuevo
+	 * id ya lo tenía otro producto, este lo sustituye y el anterior sale del
+	 * almacén: un id identifica un único producto guardado.
+	 *
+	 * @param product producto modificado
+	 */
+	public synchronized void reindex(Product product) {
+		IndexedKeys keys = products.get(product);
+		if (keys == null) {
+			return;
+		}
+		if (keys.id != product.getId()) {
+			productsById.remove(keys.id, product);
+			Product replaced = product.getId() > 0 ? productsById.get(product.getId()) : null;
+			if (replaced != null) {
+				remove(replaced);
+			}
+			indexId(product, keys);
+		}
+		String key = normalizeName(product.getName());
+		if (!key.equals(keys.name)) {
+			unindexName(keys.name, product);
+			indexName(product, keys);
+		}
+	}
+
+	public synchronized int size() {
+		return products.size();
+	}
+
+	public synchronized boolean isEmpty() {
+		return products.isEmpty();
+	}
+
+	public synchronized boolean isFull() {
+		return products.size() >= capacity;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return plazas libres antes de alcanzar la capacidad máxima
+	 */
+	public synchronized int getRemainingCapacity() {
+		return capacity - products.size();
+	}
+
+	/**
+	 * @return el mayor id que ha pasado por el almacén (0 si está vacío)
+	 */
+	public synchronized int getMaxId() {
+		return maxId;
+	}
+
+	/**
+	 * @return copia de los productos en orden de inserción
+	 */
+	public synchronized ArrayList<Product> toList() {
+		return new ArrayList<>(products.keySet());
+	}
+
+	/**
+	 * Recorre una copia de los productos, de modo que el almacén puede cambiar
+	 * (por ejemplo, por el change stream) mientras se itera.
+	 */
+	@Override
+	public synchronized Iterator<Product> iterator() {
+		return toList().iterator();
+	}
+
+	/**
+	 * Estima la memoria ocupada por los productos y sus índices.
+	 * Es una aproximación (no mide el heap real): suma una cifra fija por producto
+	 * más la longitud de su nombre, pensada para dimensionar terminales.
+	 *
+	 * @return bytes estimados
+	 */
+	public synchronized long estimateMemoryBytes() {
+		long bytes = 0;
+		for (Product product : products.keySet()) {
+			bytes += ESTIMATED_BYTES_PER_PRODUCT;
+			if (product.getName() != null) {
+				bytes += product.getName().length() * ESTIMATED_BYTES_PER_NAME_CHAR;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return resumen de tamaño, capacidad y memoria estimada (no medida) del almacén
+	 */
+	public synchronized String getMemoryReport() {
+		String capacityText = capacity == UNLIMITED ? "sin limite" : String.valueOf(capacity);
+		return "Inventario: " + size() + " productos (capacidad " + capacityText + ", ~"
+				+ (estimateMemoryBytes() / 1024) + " KB estimados a " + ESTIMATED_BYTES_PER_PRODUCT
+				+ " bytes por producto mas el nombre; no es una medida del heap)";
+	}
+
+	private void indexId(Product product, IndexedKeys keys) {
+		keys.id = product.getId();
+		if (product.getId() > 0) {
+			productsById.put(product.getId(), product);
+			maxId = Math.max(maxId, product.getId());
+		}
+	}
+
+	private void indexName(Product product, IndexedKeys keys) {
+		String key = normalizeName(product.getName());
+		keys.name = key;
+		Product indexed = productsByName.putIfAbsent(key, product);
+		if (indexed != null && indexed != product) {
+			duplicatedNames.computeIfAbsent(key, k -> new ArrayDeque<>()).add(product);
+		}
+	}
+
+	private void unindexName(String key, Product product) {
+		ArrayDeque<Product> waiting = duplicatedNames.get(key);
+		if (productsByName.get(key) == product) {
+			if (waiting == null) {
+				productsByName.remove(key);
+				return;
+			}
+			// el siguiente producto con el mismo nombre pasa a ser el indexado
+			productsByName.put(key, waiting.poll());
+		} else if (waiting != null) {
+			waiting.remove(product);
+		}
+		if (waiting != null && waiting.isEmpty()) {
+			duplicatedNames.remove(key);
+		}
+	}
+
+	private static String normalizeName(String name) {
+		return name == null ? "" : name.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Id y nombre normalizado con los que un producto está en los índices.
+	 */
+	private static final class IndexedKeys {
+		private int id;
+		private String name;
+	}
+}
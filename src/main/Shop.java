@@ -4,18 +4,26 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
+import dao.BatchResult;
 import dao.Dao;
 import dao.DaoFactory;
+import dao.DaoImplMongoDB;
+import dao.InventoryChangeListener;
+import dao.MongoInventoryWatcher;
 import model.Amount;
 import model.Client;
 import model.Employee;
 import model.Product;
 import model.Sale;
 import util.LookAndFeelUtil;
+import utils.Constants;
 
 /**
  * Clase principal que representa la tienda.
@@ -32,11 +40,8 @@ public class Shop {
 	/** Dinero disponible en caja */
 	private Amount cash = new Amount(100.00);
 	
-	/** Lista de productos del inventario */
-	private ArrayList<Product> inventory;
-	
-	/** Contador de productos en inventario */
-	private int productCount;
+	/** Productos del inventario, indexados por id y por nombre */
+	private final InventoryStore inventory;
 	
 	/** Lista de ventas realizadas */
 	private ArrayList<Sale> sales;
@@ -47,20 +52,46 @@ public class Shop {
 	/** DAO para persistencia de datos (por defecto MongoDB) */
 	private final Dao dao = DaoFactory.createDao();
 
+	/** Seguimiento de los cambios de otras terminales (solo MongoDB con change streams) */
+	private MongoInventoryWatcher inventoryWatcher;
+
+	/** Token del change stream que corresponde al estado actual del inventario */
+	private volatile String inventoryResumeToken;
+
+	/** Última vez que se guardó la copia local del inventario */
+	private long lastSnapshotMillis;
+
+	/** Evita registrar otro hook de cierre en cada arranque del seguimiento */
+	private boolean shutdownHookRegistered;
+
+	/** Fichero de la copia local del inventario (-Dshop.mongo.changeStream.snapshotFile) */
+	private static final String DEFAULT_SNAPSHOT_FILE = "files/inventory.snapshot";
+
+	/** Intervalo mínimo entre copias locales del inventario, en ms */
+	private static final long SNAPSHOT_INTERVAL_MS = Long.getLong("shop.mongo.changeStream.snapshotIntervalMs",
+			30_000);
+
 	/** Tasa de impuestos aplicada a las ventas */
 	private static final double TAX_RATE = 1.04;
-	
-	/** Número máximo de productos permitidos en inventario */
-	private static final int MAX_INVENTORY_SIZE = 10;
 
 	// ==================== CONSTRUCTOR ====================
 	
 	/**
 	 * Constructor por defecto.
 	 * Inicializa las listas de inventario y ventas vacías.
+	 * La capacidad del inventario se toma de -Dshop.inventory.capacity (sin límite por defecto).
 	 */
 	public Shop() {
-		this.inventory = new ArrayList<>();
+		this(new InventoryStore());
+	}
+
+	/**
+	 * Constructor con un almacén de inventario concreto (por ejemplo, con capacidad acotada).
+	 * 
+	 * @param inventory almacén de productos a usar
+	 */
+	public Shop(InventoryStore inventory) {
+		this.inventory = inventory;
 		this.sales = new ArrayList<>();
 	}
 	
@@ -86,34 +117,38 @@ public class Shop {
 
 	/**
 	 * Obtiene la lista completa del inventario.
-	 * @return ArrayList con todos los productos
+	 * @return copia en un ArrayList de todos los productos, en orden de alta
 	 */
 	public ArrayList<Product> getInventory() {
-		return this.inventory;
+		return this.inventory.toList();
 	}
 
 	/**
 	 * Establece el inventario completo.
+	 * Los productos que superen la capacidad configurada se descartan.
 	 * @param inventory lista de productos a establecer
 	 */
 	public void setInventory(ArrayList<Product> inventory) {
-		this.inventory = inventory;
+		int discarded = this.inventory.replaceAll(inventory);
+		if (discarded > 0) {
+			System.out.println("Se han descartado " + discarded + " productos por superar la capacidad del inventario o repetir id");
+		}
 	}
 
 	/**
-	 * Obtiene el número de productos en inventario.
-	 * @return cantidad de productos
+	 * Obtiene el almacén de inventario con sus índices.
+	 * @return almacén de productos
 	 */
-	public int getProductCount() {
-		return this.productCount;
+	public InventoryStore getInventoryStore() {
+		return this.inventory;
 	}
 
 	/**
-	 * Establece el contador de productos.
-	 * @param productCount nuevo contador
+	 * Obtiene el número de productos en inventario.
+	 * @return cantidad de productos
 	 */
-	public void setProductCount(int productCount) {
-		this.productCount = productCount;
+	public int getProductCount() {
+		return this.inventory.size();
 	}
 
 	/**
@@ -161,8 +196,14 @@ public class Shop {
 		LookAndFeelUtil.applySystemLookAndFeel();
 		Shop shop = new Shop();
 
-		// Cargar inventario desde base de datos
-		shop.initializeInventory();
+		// Cargar inventario desde base de datos; sin inventario completo no se arranca
+		try {
+			shop.initializeInventory();
+		} catch (UncheckedIOException e) {
+			System.err.println("No se ha podido cargar el inventario, se cierra el programa");
+			e.printStackTrace();
+			return;
+		}
 		
 		// Iniciar sesión de empleado
 		shop.authenticateEmployee();
@@ -229,6 +270,7 @@ public class Shop {
 
 			case 10:
 				System.out.println("Cerrando programa ...");
+				shop.stopInventorySync();
 				exitRequested = true;
 				break;
 			}
@@ -266,20 +308,142 @@ public class Shop {
 	/**
 	 * Inicializa el inventario de la tienda.
 	 * Carga los productos desde el almacenamiento configurado.
+	 * @throws UncheckedIOException si el inventario no se ha podido leer entero
 	 */
 	public void initializeInventory() {
+		if (isInventorySyncEnabled()) {
+			this.startInventorySync();
+			return;
+		}
 		// Leer inventario desde el almacenamiento configurado
 		this.fetchInventoryFromDatabase();
 	}
 
+	/**
+	 * @return true si se siguen los cambios del inventario con change streams
+	 *         (-Dshop.mongo.changeStream=true y DAO MongoDB)
+	 */
+	public boolean isInventorySyncEnabled() {
+		return Boolean.getBoolean("shop.mongo.changeStream") && this.dao instanceof DaoImplMongoDB;
+	}
+
+	/**
+	 * Carga el inventario y empieza a aplicar los cambios de otras terminales.
+	 * Si hay copia local, se carga y se reanudan los cambios desde su token en lugar
+	 * de leer todo el inventario; si no, se toma el punto actual del change stream
+	 * antes de leerlo, para no perder cambios ocurridos durante la carga.
+	 */
+	private void startInventorySync() {
+		DaoImplMongoDB mongoDao = (DaoImplMongoDB) this.dao;
+		InventorySnapshotFile.Snapshot snapshot = InventorySnapshotFile.read(getSnapshotFile());
+		if (snapshot != null) {
+			this.inventory.replaceAll(snapshot.products());
+			this.inventoryResumeToken = snapshot.resumeToken();
+			System.out.println("Inventario cargado de la copia local: " + this.inventory.size() + " productos");
+		} else {
+			this.inventoryResumeToken = mongoDao.getInventoryResumeToken();
+			this.fetchInventoryFromDatabase();
+		}
+		this.lastSnapshotMillis = System.currentTimeMillis();
+		this.inventoryWatcher = mongoDao.watchInventory(this.inventoryResumeToken, new InventoryChangeListener() {
+
+			@Override
+			public void productChanged(Product product) {
+				inventory.upsert(product);
+			}
+
+			@Override
+			public void productDeleted(int productId) {
+				inventory.removeById(productId);
+			}
+
+			@Override
+			public void resumeTokenChanged(String resumeToken) {
+				inventoryResumeToken = resumeToken;
+				if (System.currentTimeMillis() - lastSnapshotMillis >= SNAPSHOT_INTERVAL_MS) {
+					saveInventorySnapshot();
+				}
+			}
+
+			@Override
+			public void resyncRequired() {
+				InventorySnapshotFile.delete(getSnapshotFile());
+				fetchInventoryFromDatabase();
+			}
+		});
+		if (!this.shutdownHookRegistered) {
+			Runtime.getRuntime().addShutdownHook(new Thread(this::stopInventorySync));
+			this.shutdownHookRegistered = true;
+		}
+	}
+
+	/**
+	 * Deja de seguir los cambios del inventario y guarda la copia local para que el
+	 * siguiente arranque reanude desde este punto.
+	 */
+	public synchronized void stopInventorySync() {
+		if (this.inventoryWatcher == null) {
+			return;
+		}
+		this.inventoryWatcher.close();
+		this.inventoryWatcher = null;
+		saveInventorySnapshot();
+	}
+
+	private void saveInventorySnapshot() {
+		String resumeToken = this.inventoryResumeToken;
+		if (resumeToken == null) {
+			return;
+		}
+		try {
+			InventorySnapshotFile.write(getSnapshotFile(), resumeToken, this.inventory.toList());
+			this.lastSnapshotMillis = System.currentTimeMillis();
+		} catch (IOException e) {
+			System.err.println("No se ha podido guardar la copia local del inventario");
+			e.printStackTrace();
+		}
+	}
+
+	private Path getSnapshotFile() {
+		return Path.of(System.getProperty("shop.mongo.changeStream.snapshotFile", DEFAULT_SNAPSHOT_FILE));
+	}
+
 	/**
 	 * Recupera el inventario del almacenamiento persistente para garantizar que la
 	 * aplicación arranca sincronizada con los datos.
-	 * Actualiza la lista de inventario y el contador de productos.
+	 * Los productos se leen en una lista aparte y se sustituyen de una vez, así que
+	 * mientras dura la lectura (también en una resincronización del change stream)
+	 * se sigue viendo el inventario anterior completo. Si la lectura falla se
+	 * propaga la excepción y el inventario no cambia, para no trabajar ni guardar
+	 * sobre una carga parcial.
+	 *
+	 * @throws UncheckedIOException si el almacenamiento no se ha podido leer entero
 	 */
 	private void fetchInventoryFromDatabase() {
-		setInventory(this.dao.getInventory());
-		this.productCount = inventory.size();
+		ArrayList<Product> products = new ArrayList<>();
+		int capacity = this.inventory.getCapacity();
+		long read = this.dao.streamInventory(Constants.INVENTORY_FETCH_SIZE, product -> {
+			if (products.size() < capacity) {
+				products.add(product);
+			}
+		});
+		long discarded = read - products.size() + this.inventory.replaceAll(products);
+		if (discarded > 0) {
+			System.out.println("Se han descartado " + discarded + " productos por superar la capacidad del inventario o repetir id");
+		}
+		System.out.println(this.inventory.getMemoryReport());
+	}
+	
+	/**
+	 * Recupera una página del inventario directamente del almacenamiento,
+	 * paginando por id para recorrer catálogos grandes sin cargarlos enteros.
+	 * 
+	 * @param afterId id del último producto de la página anterior (0 para la primera)
+	 * @param limit número máximo de productos de la página
+	 * @return productos de la página ordenados por id
+	 */
+	public ArrayList<Product> getInventoryPage(int afterId, int limit) {
+		return this.dao.getInventoryPage(afterId, limit);
 	}
 	
 	/**
@@ -287,7 +451,7 @@ public class Shop {
 	 * @return true si la exportación fue exitosa, false en caso contrario
 	 */
 	public Boolean exportInventoryToDatabase() {
-		return this.dao.writeInventory(inventory);
+		return this.dao.writeInventory(inventory.toList());
 	}
 
 
@@ -335,7 +499,6 @@ public class Shop {
 			// Eliminar de inventario local y base de datos
 			if (inventory.remove(product)) {
 				this.dao.deleteProduct(product.getId());
-				this.productCount = inventory.size();
 				System.out.println("El producto " + productName + " ha sido eliminado");
 
 			} else {
@@ -361,10 +524,12 @@ public class Shop {
 			// Solicitar cantidad a añadir
 			System.out.print("Seleccione la cantidad a añadir: ");
 			int stockQuantity = stockScanner.nextInt();
-			// Actualizar stock y persistir en base de datos
-			product.setStock(product.getStock() + stockQuantity);
-			this.dao.updateProduct(product);
-			System.out.println("El stock del producto " + productName + " ha sido actualizado a " + product.getStock());
+			// Ajustar stock directamente en base de datos
+			if (adjustStock(product, stockQuantity)) {
+				System.out.println("El stock del producto " + productName + " ha sido actualizado a " + product.getStock());
+			} else {
+				System.out.println("No se ha podido actualizar el stock del producto " + productName);
+			}
 
 		} else {
 			System.out.println("No se ha encontrado el producto con nombre " + productName);
@@ -430,18 +595,12 @@ public class Shop {
 			Product product = findProduct(productName);
 			boolean isProductAvailable = false;
 
-			if (product != null && product.isAvailable()) {
+			// Descontar una unidad en base de datos; falla si otra caja ha agotado el stock
+			if (product != null && product.isAvailable() && adjustStock(product, -1)) {
 				isProductAvailable = true;
 				totalAmount.setValue(totalAmount.getValue() + product.getPublicPrice().getValue());
-				product.setStock(product.getStock() - 1);
 				shoppingCart.add(product);
 				cartItemCount++;
-				// Si no hay más stock, marcar como no disponible
-				if (product.getStock() == 0) {
-					product.setAvailable(false);
-				}
-				// Persistir cambios en base de datos
-				this.dao.updateProduct(product);
 				System.out.println("Producto añadido con éxito");
 			}
 
@@ -559,44 +718,146 @@ public class Shop {
 
 	/**
 	 * Añade un producto al inventario y lo persiste en la base de datos.
-	 * Verifica que no se haya alcanzado el límite máximo de productos.
+	 * Verifica que no se haya alcanzado el límite máximo de productos. Si el
+	 * almacenamiento no lo guarda, el producto no se añade a memoria.
 	 * 
 	 * @param product el producto a añadir
+	 * @return true si el producto se ha persistido y añadido al inventario
 	 */
-	public void addProduct(Product product) {
+	public boolean addProduct(Product product) {
 		if (isInventoryFull()) {
 			System.out.println("No se pueden añadir más productos, se ha alcanzado el máximo de " + inventory.size());
-			return;
+			return false;
+		}
+		// Persistir en BD (asigna el id) y añadir a inventario local solo si se ha guardado
+		BatchResult result = dao.addProducts(List.of(product));
+		if (!result.isApplied(0)) {
+			System.err.println("No se ha podido guardar el producto " + product.getName() + ": " + result.getError(0));
+			return false;
+		}
+		if (!hasStoredId(product)) {
+			return false;
 		}
-		// Añadir a inventario local y persistir en BD
 		inventory.add(product);
-		dao.addProduct(product);
-		productCount = inventory.size();
+		return true;
+	}
+
+	/**
+	 * Comprueba que el almacenamiento ha asignado id a un producto recién guardado.
+	 * Si el DAO no lo ha hecho (un fallo suyo) se toma el id con el que quedó
+	 * guardado buscándolo por nombre; nunca se inventa un id local, que podría
+	 * chocar con el de otra terminal.
+	 * 
+	 * @param product producto guardado
+	 * @return true si el producto tiene el id con el que está guardado
+	 */
+	private boolean hasStoredId(Product product) {
+		if (product.getId() > 0) {
+			return true;
+		}
+		Product stored = dao.findProductByName(product.getName());
+		if (stored == null || stored.getId() <= 0) {
+			System.err.println("El almacenamiento no ha asignado id al producto " + product.getName());
+			return false;
+		}
+		product.setId(stored.getId());
+		return true;
 	}
 	
 	
 
+	/**
+	 * Añade varios productos al inventario con una única operación del almacenamiento.
+	 * Solo se incorporan a memoria los productos que se han podido persistir.
+	 * 
+	 * @param products productos a añadir
+	 * @return resultado por producto, en el mismo orden que la lista recibida
+	 */
+	public BatchResult addProducts(List<Product> products) {
+		if (products.size() > inventory.getRemainingCapacity()) {
+			BatchResult rejected = new BatchResult(products.size());
+			rejected.markAllFailed("Se superaría la capacidad de " + inventory.getCapacity() + " productos");
+			return rejected;
+		}
+		BatchResult result = dao.addProducts(products);
+		for (int i = 0; i < products.size(); i++) {
+			if (result.isApplied(i) && hasStoredId(products.get(i))) {
+				inventory.add(products.get(i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Persiste los cambios de varios productos con una única operación del almacenamiento.
+	 * 
+	 * @param products productos con los datos actualizados
+	 * @return resultado por producto, en el mismo orden que la lista recibida
+	 */
+	public BatchResult updateProducts(List<Product> products) {
+		for (Product product : products) {
+			inventory.reindex(product);
+		}
+		return dao.updateProducts(products);
+	}
+
+	/**
+	 * Elimina varios productos con una única operación del almacenamiento.
+	 * Solo se quitan de memoria los que se han eliminado correctamente.
+	 * 
+	 * @param productIds identificadores de los productos a eliminar
+	 * @return resultado por identificador, en el mismo orden que la lista recibida
+	 */
+	public BatchResult deleteProducts(List<Integer> productIds) {
+		BatchResult result = dao.deleteProducts(productIds);
+		for (int i = 0; i < productIds.size(); i++) {
+			if (result.isApplied(i)) {
+				inventory.removeById(productIds.get(i));
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Verifica si el inventario está lleno.
-	 * @return true si se alcanzó el límite máximo de productos
+	 * @return true si se alcanzó la capacidad configurada del inventario
 	 */
 	public boolean isInventoryFull() {
-		return productCount >= MAX_INVENTORY_SIZE;
+		return inventory.isFull();
 	}
 
 	/**
-	 * find product by name
+	 * find product by name (sin distinguir mayúsculas) usando el índice por nombre.
+	 * Si no está en memoria se busca en el almacenamiento y se añade al inventario,
+	 * de modo que no hace falta haber cargado todo el catálogo.
 	 * 
 	 * @param product name
 	 */
 	public Product findProduct(String name) {
-		for (int i = 0; i < inventory.size(); i++) {
-			if (inventory.get(i) != null && inventory.get(i).getName().equalsIgnoreCase(name)) {
-				return inventory.get(i);
-			}
+		Product product = inventory.findByName(name);
+		if (product != null || name == null) {
+			return product;
+		}
+		product = this.dao.findProductByName(name);
+		if (product == null) {
+			return null;
+		}
+		Product known = inventory.findById(product.getId());
+		if (known != null) {
+			return known;
 		}
-		return null;
+		inventory.add(product);
+		return product;
+	}
 
+	/**
+	 * Busca un producto del inventario por su identificador usando el índice por id.
+	 * 
+	 * @param id identificador del producto
+	 * @return el producto, o null si no está en el inventario
+	 */
+	public Product findProductById(int id) {
+		return inventory.findById(id);
 	}
 	
 	/**
@@ -605,9 +866,31 @@ public class Shop {
 	 * @param product el producto con los datos actualizados
 	 */
 	public void updateProduct(Product product) {
+		inventory.reindex(product);
 		this.dao.updateProduct(product);
 	}
 	
+	/**
+	 * Ajusta el stock de un producto de forma atómica en el almacenamiento y
+	 * sincroniza la copia en memoria con el valor resultante.
+	 * Si el stock llega a cero el producto queda marcado como no disponible.
+	 * 
+	 * @param product el producto a ajustar
+	 * @param delta unidades a sumar (negativo para restar)
+	 * @return true si el ajuste se aplicó, false si no existe o no hay stock suficiente
+	 */
+	public boolean adjustStock(Product product, int delta) {
+		int newStock = this.dao.adjustStock(product.getId(), delta);
+		if (newStock == Dao.STOCK_NOT_ADJUSTED) {
+			return false;
+		}
+		product.setStock(newStock);
+		if (newStock == 0) {
+			product.setAvailable(false);
+		}
+		return true;
+	}
+	
 	/**
 	 * Elimina un producto del inventario por su identificador.
 	 * El producto se elimina tanto de memoria como de la base de datos.
@@ -616,15 +899,6 @@ public class Shop {
 	 */
 	public void deleteProduct(int id) {
 		this.dao.deleteProduct(id);
-		inventory.removeIf(product -> product.getId() == id);
-		productCount = inventory.size();
-	}
-
-	/**
-	 * Genera el próximo identificador disponible tomando como referencia los
-	 * productos cargados actualmente.
-	 */
-	public int getNextProductId() {
-		return inventory.stream().mapToInt(Product::getId).max().orElse(0) + 1;
+		inventory.removeById(id);
 	}
 }
@@ -1,25 +1,30 @@
 package model;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.Table;
-import javax.persistence.Transient;
 
-import dao.DaoFactory;
-import dao.DaoImplObjectDB;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import dao.AuthenticationService;
 import main.Logable;
 
 /**
  * Clase que representa un empleado de la tienda.
  * Extiende Person e implementa Logable para autenticación.
- * Utiliza el DAO configurado para validar credenciales contra el almacenamiento.
+ * Las credenciales se validan con el servicio de login del proceso
+ * ({@link AuthenticationService} salvo que se inyecte otro).
  * 
  * @author Marc Muntané Clarà
  * @version 2.0
  */
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "shop.employee")
 public class Employee extends Person implements Logable {
 	
 	/** Identificador único del empleado */
@@ -31,9 +36,12 @@ public class Employee extends Person implements Logable {
 	@Column(name = "password", nullable = false, length = 100)
 	private String password;
 	
-	/** DAO configurado para autenticación contra base de datos */
-	@Transient
-	private transient DaoImplObjectDB dao = (DaoImplObjectDB) DaoFactory.createLoginDao();
+	/**
+	 * Servicio de autenticación compartido por todas las instancias. Se resuelve
+	 * al primer login, no al crear cada empleado: las entidades que cargan los
+	 * DAO son objetos planos.
+	 */
+	private static Logable loginService;
 	
 	/**
 	 * Constructor con nombre.
@@ -98,22 +106,26 @@ public class Employee extends Person implements Logable {
 	 */
 	@Override
 	public boolean login(int user, String password) {
-//		if (USER == user && PASSWORD.equals(password)) {
-//			return true;
-//		} 
-		boolean success = false;
-		
-		// connect to data
-		dao.connect();
-		
-		// get employee data
-		if(dao.getEmployee(user, password) != null) {
-			success =  true;
+		return getLoginService().login(user, password);
+	}
+
+	/**
+	 * Sustituye el servicio de login usado por {@link #login(int, String)}.
+	 *
+	 * @param service servicio a usar, o null para volver a {@link AuthenticationService}
+	 */
+	public static synchronized void setLoginService(Logable service) {
+		loginService = service;
+	}
+
+	/**
+	 * @return servicio de login del proceso, resuelto una sola vez
+	 */
+	public static synchronized Logable getLoginService() {
+		if (loginService == null) {
+			loginService = AuthenticationService.getInstance();
 		}
-		
-		// disconnect data
-		dao.disconnect();
-		return success;
+		return loginService;
 	}
 
 }
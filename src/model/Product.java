@@ -1,14 +1,24 @@
 package model;
 
+import java.util.Locale;
+
+import javax.jdo.annotations.Index;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.PostLoad;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import javax.persistence.Transient;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
 /**
  * Clase que representa un producto del inventario de la tienda.
  * Contiene información sobre precio, stock y disponibilidad.
@@ -17,7 +27,11 @@ import javax.persistence.Transient;
  * @version 2.0
  */
 @Entity
-@Table(name = "inventory")
+@Table(name = "inventory", indexes = @javax.persistence.Index(name = "idx_inventory_name_normalized",
+		columnList = "name_normalized"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "shop.product")
+@DynamicUpdate
 public class Product {
 	
 	/** Identificador único del producto */
@@ -26,9 +40,20 @@ public class Product {
 	@Column(name = "id")
 	private int id;
 	
-	/** Nombre del producto */
+	/** Nombre del producto (indexado en ObjectDB para las búsquedas por nombre) */
+	@Index
 	@Column(name = "name", nullable = false, length = 100)
 	private String name;
+
+	/**
+	 * Nombre en minúsculas para buscar sin distinguir mayúsculas. En MySQL es una
+	 * columna generada e indexada (como en create_tables.sql) que Hibernate solo
+	 * lee; mapearla permite que los modos update/cached de HibernateUtil creen la
+	 * columna y su índice.
+	 */
+	@Column(name = "name_normalized", length = 100, insertable = false, updatable = false,
+			columnDefinition = "VARCHAR(100) GENERATED ALWAYS AS (LOWER(name)) STORED")
+	private String nameNormalized;
 	
 	/** Precio del producto (persistido como columna price) */
 	@Column(name = "price", nullable = false)
@@ -162,6 +187,16 @@ public class Product {
 		totalProducts = Math.max(totalProducts, this.id);
 	}
 
+	/**
+	 * Mantiene el nombre normalizado en los almacenamientos que lo guardan desde
+	 * Java (ObjectDB); en MySQL lo calcula la propia columna.
+	 */
+	@PrePersist
+	@PreUpdate
+	private void normalizeName() {
+		this.nameNormalized = name == null ? null : name.toLowerCase(Locale.ROOT);
+	}
+
 	/**
 	 * Verifica si el producto está disponible.
 	 * @return true si está disponible
@@ -196,8 +231,11 @@ public class Product {
 
 	/**
 	 * Obtiene el total de productos creados.
+	 * Es un contador local del proceso y no sirve para generar ids: los ids los
+	 * asigna el DAO (secuencia por bloques) o la base de datos.
 	 * @return contador total de productos
 	 */
+	@Deprecated
 	public static int getTotalProducts() {
 		return totalProducts;
 	}
@@ -206,6 +244,7 @@ public class Product {
 	 * Establece el contador total de productos.
 	 * @param totalProducts nuevo contador
 	 */
+	@Deprecated
 	public static void setTotalProducts(int totalProducts) {
 		Product.totalProducts = totalProducts;
 	}
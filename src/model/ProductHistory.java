@@ -2,28 +2,43 @@ package model;
 
 import java.sql.Timestamp;
 
+import javax.jdo.annotations.Index;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
-
-import org.hibernate.annotations.CreationTimestamp;
+import javax.persistence.TableGenerator;
 
 /**
  * Entidad para la tabla historical_inventory (snapshot histórico del inventario).
  *
  * Formato esperado (PDF): id, available, created_at, id_product, name, price, stock.
+ *
+ * Los ids salen de la tabla id_generators en bloques de ID_ALLOCATION_SIZE (hi-lo
+ * con optimizador pooled): a diferencia de IDENTITY, Hibernate conoce el id antes
+ * del INSERT y puede agrupar las inserciones en lotes JDBC. El DAO JDBC reserva
+ * sus ids del mismo contador (utils.HistoryIdGenerator), así que no se pisan.
  */
 @Entity
 @Table(name = "historical_inventory")
 public class ProductHistory {
 
+	/** Ids reservados por cada acceso a id_generators */
+	public static final int ID_ALLOCATION_SIZE = 500;
+
+	/** Fila de id_generators con el contador de esta tabla */
+	public static final String ID_GENERATOR_KEY = "historical_inventory";
+
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "historical_inventory_ids")
+	@TableGenerator(name = "historical_inventory_ids", table = "id_generators", pkColumnName = "name",
+			valueColumnName = "next_val", pkColumnValue = ID_GENERATOR_KEY,
+			allocationSize = ID_ALLOCATION_SIZE)
 	private int id;
 
+	@Index
 	@Column(name = "id_product", nullable = false)
 	private int idProduct;
 
@@ -39,7 +54,8 @@ public class ProductHistory {
 	@Column(name = "stock")
 	private int stock;
 
-	@CreationTimestamp
+	/** Instante de la instantánea: el mismo para todas las filas de una exportación */
+	@Index
 	@Column(name = "created_at", updatable = false)
 	private Timestamp createdAt;
 
@@ -47,7 +63,18 @@ public class ProductHistory {
 	}
 
 	public static ProductHistory fromProduct(Product product) {
+		return fromProduct(product, new Timestamp(System.currentTimeMillis()));
+	}
+
+	/**
+	 * Crea la fila histórica de un producto para una instantánea concreta.
+	 *
+	 * @param product producto exportado
+	 * @param snapshotTime instante común de la instantánea
+	 */
+	public static ProductHistory fromProduct(Product product, Timestamp snapshotTime) {
 		ProductHistory row = new ProductHistory();
+		row.createdAt = snapshotTime;
 		row.idProduct = product.getId();
 		row.name = product.getName();
 		row.price = product.getPrice();
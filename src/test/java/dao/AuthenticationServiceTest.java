@@ -0,0 +1,81 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import utils.CredentialCache;
+import utils.ObjectDbSupport;
+
+class AuthenticationServiceTest {
+
+	@TempDir
+	Path tempDir;
+
+	private AuthenticationService service;
+
+	@BeforeEach
+	void useTemporaryUsersDatabase() {
+		System.setProperty("shop.objectdb.usersPath", tempDir.resolve("users.odb").toString());
+		service = new AuthenticationService(new DaoImplObjectDB(null));
+	}
+
+	@AfterEach
+	void closeUsersDatabase() {
+		ObjectDbSupport.closeSharedEntityManagerFactory();
+		System.clearProperty("shop.objectdb.usersPath");
+	}
+
+	@Test
+	void validatesSeededUsersAndCountsAttempts() {
+		assertTrue(service.login(1, "1234"));
+		assertTrue(service.login(123, "test"));
+		assertFalse(service.login(123, "TEST"));
+		assertFalse(service.login(666, "nose"));
+
+		assertEquals(4, service.getAttempts());
+		assertEquals(2, service.getFailures());
+		assertTrue(service.getMaxMillis() >= service.getAverageMillis());
+	}
+
+	@Test
+	void repeatedLoginsAreVerifiedFromTheCredentialCache() {
+		CredentialCache cache = new CredentialCache(60_000, 10, 100, System::currentTimeMillis);
+		AuthenticationService cached = new AuthenticationService(new DaoImplObjectDB(null), cache);
+
+		assertTrue(cached.login(123, "test"));
+		assertTrue(cached.login(123, "test"));
+		assertFalse(cached.login(123, "otra"));
+		assertEquals(1, cache.getHits());
+
+		cached.invalidate(123);
+		assertTrue(cached.login(123, "test"));
+		assertEquals(1, cache.getHits());
+	}
+
+	@Test
+	void loginsReuseTheSharedFactoryAndPooledEntityManagers() {
+		service.login(1, "1234");
+		EntityManagerFactory factory = ObjectDbSupport.getSharedEntityManagerFactory();
+		EntityManager pooled = ObjectDbSupport.borrowEntityManager();
+		ObjectDbSupport.releaseEntityManager(pooled);
+
+		service.login(1, "1234");
+
+		EntityManager reused = ObjectDbSupport.borrowEntityManager();
+		ObjectDbSupport.releaseEntityManager(reused);
+		assertSame(factory, ObjectDbSupport.getSharedEntityManagerFactory());
+		assertSame(pooled, reused);
+	}
+}
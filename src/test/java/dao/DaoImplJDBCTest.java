@@ -0,0 +1,172 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import model.Product;
+import model.ProductHistory;
+import utils.JdbcConnectionPool;
+
+/**
+ * Pruebas de DaoImplJDBC contra H2 en modo MySQL (sin servidor externo).
+ */
+class DaoImplJDBCTest {
+
+	private JdbcConnectionPool pool;
+	private DaoImplJDBC dao;
+
+	@BeforeEach
+	void createSchema() throws SQLException {
+		String url = "jdbc:h2:mem:shop_" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+		pool = new JdbcConnectionPool(url, "sa", "", 0, 4, 60_000, 1_000);
+		JdbcConnectionPool.PooledConnection pooled = pool.borrow();
+		try (Statement statement = pooled.getConnection().createStatement()) {
+			statement.execute("CREATE TABLE inventory (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100) NOT NULL,"
+					+ " price DOUBLE NOT NULL, available BOOLEAN DEFAULT TRUE, stock INT DEFAULT 0,"
+					+ " name_normalized VARCHAR(100) GENERATED ALWAYS AS (LOWER(name)))");
+			statement.execute("CREATE INDEX idx_inventory_name_normalized ON inventory (name_normalized)");
+			statement.execute("CREATE TABLE historical_inventory (id INT AUTO_INCREMENT PRIMARY KEY,"
+					+ " id_product INT NOT NULL, name VARCHAR(100) NOT NULL, price DOUBLE NOT NULL,"
+					+ " available BOOLEAN DEFAULT TRUE, stock INT DEFAULT 0,"
+					+ " created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+			statement.execute("CREATE TABLE id_generators (name VARCHAR(64) PRIMARY KEY, next_val BIGINT NOT NULL)");
+			statement.execute("INSERT INTO inventory (name, price, available, stock) VALUES"
+					+ " ('Manzana', 10.0, TRUE, 50), ('Pera', 15.0, TRUE, 30), ('Fresa', 8.0, TRUE, 40)");
+		}
+		pool.release(pooled);
+		dao = new DaoImplJDBC(pool);
+	}
+
+	@AfterEach
+	void closePool() {
+		pool.close();
+	}
+
+	@Test
+	void operationsReuseTheSamePooledConnection() {
+		dao.getInventory();
+		dao.getInventory();
+		dao.adjustStock(1, 1);
+
+		assertEquals(1, pool.getOpenCount());
+		assertEquals(0, pool.getActiveCount());
+	}
+
+	@Test
+	void repeatedStockUpdatesReuseThePreparedStatements() {
+		dao.adjustStock(1, -1);
+		long missesAfterFirstCall = pool.getStatementCacheMisses();
+
+		for (int i = 0; i < 10; i++) {
+			dao.adjustStock(1, -1);
+		}
+
+		assertEquals(missesAfterFirstCall, pool.getStatementCacheMisses());
+		assertEquals(20, pool.getStatementCacheHits());
+	}
+
+	@Test
+	void adjustStockNeverGoesBelowZeroAndMarksSoldOutProducts() {
+		assertEquals(25, dao.adjustStock(2, -5));
+		assertEquals(Dao.STOCK_NOT_ADJUSTED, dao.adjustStock(2, -26));
+		assertEquals(0, dao.adjustStock(2, -25));
+
+		Product pear = dao.getInventoryPage(1, 1).getFirst();
+		assertEquals(0, pear.getStock());
+		assertFalse(pear.isAvailable());
+	}
+
+	@Test
+	void bulkOperationsRunAsOneBatch() {
+		Product kiwi = new Product("Kiwi", 3.5, true, 12);
+		Product mango = new Product("Mango", 6.0, true, 8);
+
+		assertTrue(dao.addProducts(List.of(kiwi, mango)).isFullySuccessful());
+		assertEquals(5, dao.getInventory().size());
+
+		BatchResult deleted = dao.deleteProducts(List.of(1, 999));
+		assertTrue(deleted.isApplied(0));
+		assertFalse(deleted.isApplied(1));
+		assertEquals(4, dao.getInventory().size());
+	}
+
+	@Test
+	void writeInventoryExportsOneSnapshotInChunks() throws SQLException {
+		ArrayList<Product> products = new ArrayList<>();
+		for (int id = 1; id <= 1_200; id++) {
+			products.add(new Product(id, "Producto " + id, 1.0, true, id));
+		}
+
+		assertTrue(dao.writeInventory(products));
+
+		ExportReport report = dao.getLastExportReport();
+		assertEquals(1_200, report.getRows());
+		assertEquals(3, report.getChunks());
+		JdbcConnectionPool.PooledConnection pooled = pool.borrow();
+		try (Statement statement = pooled.getConnection().createStatement();
+				ResultSet rs = statement.executeQuery(
+						"SELECT COUNT(*), COUNT(DISTINCT created_at) FROM historical_inventory")) {
+			rs.next();
+			assertEquals(1_200, rs.getInt(1));
+			assertEquals(1, rs.getInt(2));
+		} finally {
+			pool.release(pooled);
+		}
+	}
+
+	@Test
+	void writeInventoryReservesHistoryIdsFromTheSharedCounter() throws SQLException {
+		JdbcConnectionPool.PooledConnection pooled = pool.borrow();
+		try (Statement statement = pooled.getConnection().createStatement()) {
+			statement.execute("INSERT INTO historical_inventory (id, id_product, name, price) VALUES (700, 1, 'Manzana', 10.0)");
+		} finally {
+			pool.release(pooled);
+		}
+
+		assertTrue(dao.writeInventory(dao.getInventory()));
+		assertTrue(dao.writeInventory(dao.getInventory()));
+
+		pooled = pool.borrow();
+		try (Statement statement = pooled.getConnection().createStatement();
+				ResultSet rs = statement.executeQuery("SELECT (SELECT COUNT(*) FROM historical_inventory WHERE id > 700),"
+						+ " (SELECT MAX(id) FROM historical_inventory),"
+						+ " (SELECT next_val FROM id_generators WHERE name = 'historical_inventory')")) {
+			rs.next();
+			assertEquals(6, rs.getInt(1));
+			assertTrue(rs.getLong(3) >= rs.getInt(2) + ProductHistory.ID_ALLOCATION_SIZE);
+		} finally {
+			pool.release(pooled);
+		}
+	}
+
+	@Test
+	void findProductByNameIgnoresCase() {
+		assertEquals(2, dao.findProductByName("PERA").getId());
+		assertNull(dao.findProductByName("Kiwi"));
+	}
+
+	@Test
+	void findProductByNameReturnsLowestIdForCaseOnlyDuplicates() {
+		dao.addProduct(new Product("PERA", 16.0, true, 5));
+
+		assertEquals(2, dao.findProductByName("pera").getId());
+	}
+
+	@Test
+	void getInventoryPageUsesIdKeyset() {
+		assertEquals(List.of(1, 2), dao.getInventoryPage(0, 2).stream().map(Product::getId).toList());
+		assertEquals(List.of(3), dao.getInventoryPage(2, 2).stream().map(Product::getId).toList());
+	}
+}
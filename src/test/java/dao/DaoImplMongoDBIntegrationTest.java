@@ -1,10 +1,13 @@
 package dao;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.List;
+
 import org.bson.Document;
 import org.junit.jupiter.api.Test;
 
@@ -70,4 +73,130 @@ class DaoImplMongoDBIntegrationTest extends MongoIntegrationSupport {
 
 		assertNull(findFirst(MongoSupport.INVENTORY_COLLECTION, "name", "Yogurth"));
 	}
+
+	@Test
+	void adjustStockAppliesDeltaInPlaceAndNeverGoesBelowZero() {
+		Dao dao = new DaoImplMongoDB();
+
+		assertEquals(45, dao.adjustStock(1, -5));
+		assertEquals(Dao.STOCK_NOT_ADJUSTED, dao.adjustStock(1, -46));
+		assertEquals(0, dao.adjustStock(1, -45));
+		assertEquals(Dao.STOCK_NOT_ADJUSTED, dao.adjustStock(999, 1));
+
+		Document soldOut = findFirst(MongoSupport.INVENTORY_COLLECTION, "id", 1);
+		assertNotNull(soldOut);
+		assertEquals(0, ((Number) soldOut.get("stock")).intValue());
+		assertFalse(soldOut.getBoolean("available"));
+	}
+
+	@Test
+	void bulkOperationsReportResultPerProduct() {
+		Dao dao = new DaoImplMongoDB();
+		Product duplicated = new Product(1, "Manzana", 10.0, true, 50);
+		Product kiwi = new Product("Kiwi", 3.5, true, 12);
+		Product mango = new Product("Mango", 6.0, true, 8);
+
+		BatchResult added = dao.addProducts(List.of(kiwi, duplicated, mango));
+
+		assertEquals(2, added.getAppliedCount());
+		assertFalse(added.isApplied(1));
+		assertNotNull(added.getError(1));
+		assertEquals(7, dao.getInventory().size());
+
+		kiwi.setStock(20);
+		mango.setStock(9);
+		assertTrue(dao.updateProducts(List.of(kiwi, mango)).isFullySuccessful());
+		assertEquals(20, ((Number) findFirst(MongoSupport.INVENTORY_COLLECTION, "name", "Kiwi").get("stock")).intValue());
+
+		assertFalse(dao.updateProducts(List.of(new Product(9_999, "Pomelo", 1.0, true, 1))).isApplied(0));
+
+		BatchResult deleted = dao.deleteProducts(List.of(kiwi.getId(), 9_999, mango.getId()));
+		assertTrue(deleted.isApplied(0));
+		assertFalse(deleted.isApplied(1));
+		assertTrue(deleted.isApplied(2));
+		assertEquals(5, dao.getInventory().size());
+	}
+
+	@Test
+	void terminalsReserveDisjointIdBlocksFromTheCountersCollection() {
+		Dao firstTerminal = new DaoImplMongoDB();
+		Dao secondTerminal = new DaoImplMongoDB();
+		Product kiwi = new Product("Kiwi", 3.5, true, 12);
+		Product mango = new Product("Mango", 6.0, true, 8);
+		Product lima = new Product("Lima", 2.0, true, 5);
+
+		firstTerminal.addProduct(kiwi);
+		secondTerminal.addProduct(mango);
+		firstTerminal.addProduct(lima);
+
+		assertEquals(6, kiwi.getId());
+		assertEquals(6 + IdBlockAllocator.DEFAULT_BLOCK_SIZE, mango.getId());
+		assertEquals(7, lima.getId());
+		assertEquals(8, firstTerminal.getInventory().size());
+	}
+
+	@Test
+	void schemaAndSeedAreInitialisedOncePerProcess() {
+		new DaoImplMongoDB().getInventory();
+		Document schema = findFirst(MongoSupport.METADATA_COLLECTION, "_id", "schema");
+		assertNotNull(schema);
+		assertEquals(MongoSupport.SCHEMA_VERSION, ((Number) schema.get("version")).intValue());
+
+		try (var client = com.mongodb.client.MongoClients.create(connectionString)) {
+			client.getDatabase(databaseName).getCollection(MongoSupport.INVENTORY_COLLECTION).deleteMany(new Document());
+		}
+
+		assertTrue(new DaoImplMongoDB().getInventory().isEmpty());
+	}
+
+	@Test
+	void bucketedHistoryStoresOneDocumentPerBucketAndUnpacksOnRead() {
+		System.setProperty("shop.mongo.historyMode", "buckets");
+		System.setProperty("shop.mongo.historyBucketSize", "2");
+		try {
+			DaoImplMongoDB dao = new DaoImplMongoDB();
+			var inventory = dao.getInventory();
+
+			assertTrue(dao.writeInventory(inventory));
+
+			try (var client = com.mongodb.client.MongoClients.create(connectionString)) {
+				var database = client.getDatabase(databaseName);
+				assertEquals(3, database.getCollection(MongoSupport.HISTORY_BUCKETS_COLLECTION).countDocuments());
+				assertEquals(0, database.getCollection(MongoSupport.HISTORY_COLLECTION).countDocuments());
+			}
+			var snapshots = dao.getHistorySnapshotTimes();
+			assertEquals(1, snapshots.size());
+			var restored = dao.readHistorySnapshot(snapshots.getFirst());
+			assertEquals(inventory.stream().map(Product::getName).toList(),
+					restored.stream().map(Product::getName).toList());
+			assertEquals(100, dao.readHistoryProduct(snapshots.getFirst(), 5).getStock());
+			assertNull(dao.readHistoryProduct(snapshots.getFirst(), 99));
+		} finally {
+			System.clearProperty("shop.mongo.historyMode");
+			System.clearProperty("shop.mongo.historyBucketSize");
+		}
+	}
+
+	@Test
+	void findProductByNameUsesCaseInsensitiveLookup() {
+		Dao dao = new DaoImplMongoDB();
+
+		assertEquals(4, dao.findProductByName("fresa").getId());
+		assertEquals(5, dao.findProductByName("LECHE").getId());
+		assertNull(dao.findProductByName("Kiwi"));
+	}
+
+	@Test
+	void getInventoryPageWalksCatalogueByIdKeyset() {
+		Dao dao = new DaoImplMongoDB();
+
+		var firstPage = dao.getInventoryPage(0, 2);
+		var secondPage = dao.getInventoryPage(firstPage.getLast().getId(), 2);
+		var lastPage = dao.getInventoryPage(secondPage.getLast().getId(), 2);
+
+		assertEquals(List.of(1, 2), firstPage.stream().map(Product::getId).toList());
+		assertEquals(List.of(3, 4), secondPage.stream().map(Product::getId).toList());
+		assertEquals(List.of(5), lastPage.stream().map(Product::getId).toList());
+		assertTrue(dao.getInventoryPage(5, 2).isEmpty());
+	}
 }
@@ -0,0 +1,95 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import model.Product;
+import utils.ObjectDbSupport;
+
+class DaoImplObjectDBInventoryTest {
+
+	@TempDir
+	Path tempDir;
+
+	private DaoImplObjectDBInventory dao;
+
+	@BeforeEach
+	void useTemporaryDatabases() {
+		System.setProperty("shop.objectdb.inventoryPath", tempDir.resolve("inventory.odb").toString());
+		System.setProperty("shop.objectdb.usersPath", tempDir.resolve("users.odb").toString());
+		dao = new DaoImplObjectDBInventory();
+		dao.connect();
+		dao.addProducts(List.of(new Product("Manzana", 10.0, true, 10), new Product("Pera", 20.0, true, 20),
+				new Product("Fresa", 5.0, true, 1)));
+	}
+
+	@AfterEach
+	void closeDatabases() {
+		ObjectDbSupport.closeInventoryEntityManagerFactory();
+		ObjectDbSupport.closeSharedEntityManagerFactory();
+		System.clearProperty("shop.objectdb.inventoryPath");
+		System.clearProperty("shop.objectdb.usersPath");
+	}
+
+	@Test
+	void readsInventoryInPagesAndFindsByNameIgnoringCase() {
+		ArrayList<Product> inventory = dao.getInventory();
+		assertEquals(3, inventory.size());
+
+		ArrayList<Product> page = dao.getInventoryPage(inventory.get(0).getId(), 10);
+		assertEquals(2, page.size());
+		assertEquals(3, dao.streamInventory(2, product -> { }));
+
+		assertEquals("Pera", dao.findProductByName("Pera").getName());
+		assertEquals("Pera", dao.findProductByName("PERA").getName());
+		assertNull(dao.findProductByName("Kiwi"));
+	}
+
+	@Test
+	void adjustStockNeverGoesBelowZeroAndMarksSoldOutProducts() {
+		int fresa = dao.findProductByName("Fresa").getId();
+
+		assertEquals(Dao.STOCK_NOT_ADJUSTED, dao.adjustStock(fresa, -2));
+		assertEquals(0, dao.adjustStock(fresa, -1));
+		assertFalse(dao.findProductByName("Fresa").isAvailable());
+	}
+
+	@Test
+	void batchUpdatesAndDeletesReportMissingIds() {
+		Product pera = dao.findProductByName("Pera");
+		pera.setStock(25);
+
+		BatchResult updated = dao.updateProducts(List.of(pera, new Product(9_999, "Kiwi", 1.0, true, 1)));
+		assertTrue(updated.isApplied(0));
+		assertFalse(updated.isApplied(1));
+		assertEquals(25, dao.findProductByName("Pera").getStock());
+
+		BatchResult deleted = dao.deleteProducts(List.of(pera.getId(), 9_999));
+		assertTrue(deleted.isApplied(0));
+		assertFalse(deleted.isApplied(1));
+		assertNull(dao.findProductByName("Pera"));
+	}
+
+	@Test
+	void exportsSnapshotInBatchesAndAuthenticatesAgainstUsersDatabase() {
+		assertTrue(dao.writeInventory(dao.getInventory()));
+		ExportReport report = dao.getLastExportReport();
+		assertNotNull(report);
+		assertEquals(3, report.getRows());
+
+		assertNotNull(dao.getEmployee(123, "test"));
+		assertNull(dao.getEmployee(123, "otra"));
+	}
+}
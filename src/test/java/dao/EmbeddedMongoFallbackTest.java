@@ -9,6 +9,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
 import utils.EmbeddedMongoServer;
+import utils.MongoClientHolder;
 
 class EmbeddedMongoFallbackTest {
 
@@ -19,6 +20,7 @@ class EmbeddedMongoFallbackTest {
 		System.clearProperty("shop.mongo.database");
 		System.clearProperty("shop.mongo.autoSeed");
 		System.clearProperty("shop.mongo.embedded");
+		MongoClientHolder.shutdown();
 		EmbeddedMongoServer.stop();
 	}
 
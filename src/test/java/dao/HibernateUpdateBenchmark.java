@@ -0,0 +1,88 @@
+package dao;
+
+import java.util.function.IntConsumer;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import model.Product;
+import utils.HibernateUtil;
+
+/**
+ * Compara tres formas de persistir un cambio de stock con Hibernate sobre la
+ * base de datos configurada en hibernate.cfg.xml:
+ * merge() (SELECT + UPDATE de todas las columnas, el camino anterior de
+ * updateProduct), {@link DaoImplHibernate#updateProduct(Product)} y
+ * {@link DaoImplHibernate#adjustStock(int, int)}.
+ *
+ * No es una prueba (surefire no la ejecuta) y modifica el stock del producto
+ * indicado, dejándolo como estaba. Uso:
+ * {@code java -cp <test-classpath> dao.HibernateUpdateBenchmark <idProducto> [iteraciones]}
+ * (2.000 por defecto). Añadir -Dshop.hibernate.cache=true para medir con caché.
+ */
+public class HibernateUpdateBenchmark {
+
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println("Uso: HibernateUpdateBenchmark <idProducto> [iteraciones]");
+			return;
+		}
+		int productId = Integer.parseInt(args[0]);
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+		DaoImplHibernate dao = new DaoImplHibernate();
+		SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+		Product product;
+		try (Session session = sessionFactory.openSession()) {
+			product = session.get(Product.class, productId);
+		}
+		if (product == null) {
+			System.err.println("No existe el producto " + productId);
+			return;
+		}
+		int originalStock = product.getStock();
+
+		// calentamiento para que el JIT y los pools de Hibernate se estabilicen
+		run(iterations / 10, i -> merge(sessionFactory, product, originalStock + (i & 1)));
+		run(iterations / 10, i -> updateWithDao(dao, product, originalStock + (i & 1)));
+
+		report("merge()", iterations,
+				() -> run(iterations, i -> merge(sessionFactory, product, originalStock + (i & 1))));
+		report("updateProduct (HQL)", iterations,
+				() -> run(iterations, i -> updateWithDao(dao, product, originalStock + (i & 1))));
+		report("adjustStock (+1/-1)", iterations,
+				() -> run(iterations, i -> dao.adjustStock(productId, (i & 1) == 0 ? 1 : -1)));
+
+		updateWithDao(dao, product, originalStock);
+		HibernateUtil.shutdown();
+	}
+
+	private static void merge(SessionFactory sessionFactory, Product product, int stock) {
+		product.setStock(stock);
+		try (Session session = sessionFactory.openSession()) {
+			Transaction tx = session.beginTransaction();
+			session.merge(product);
+			tx.commit();
+		}
+	}
+
+	private static void updateWithDao(DaoImplHibernate dao, Product product, int stock) {
+		product.setStock(stock);
+		dao.updateProduct(product);
+	}
+
+	private static void run(int iterations, IntConsumer operation) {
+		for (int i = 0; i < iterations; i++) {
+			operation.accept(i);
+		}
+	}
+
+	private static void report(String label, int iterations, Runnable run) {
+		long start = System.nanoTime();
+		run.run();
+		long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+		System.out.printf("%-22s %,d actualizaciones en %,d ms (%,d/s, %.3f ms cada una)%n", label, iterations,
+				elapsedMillis, iterations * 1000L / elapsedMillis, (double) elapsedMillis / iterations);
+	}
+}
@@ -0,0 +1,60 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class IdBlockAllocatorTest {
+
+	@Test
+	void reservesOneBlockPerBlockSizeIds() {
+		AtomicInteger counter = new AtomicInteger(5);
+		AtomicInteger reservations = new AtomicInteger();
+		IdBlockAllocator allocator = new IdBlockAllocator(size -> {
+			reservations.incrementAndGet();
+			return counter.addAndGet(size);
+		}, 3);
+
+		assertEquals(6, allocator.nextId());
+		assertEquals(7, allocator.nextId());
+		assertEquals(8, allocator.nextId());
+		assertEquals(9, allocator.nextId());
+		assertEquals(2, reservations.get());
+		assertEquals(2, allocator.getRemainingInBlock());
+	}
+
+	@Test
+	void terminalsSharingACounterNeverGetTheSameId() throws InterruptedException {
+		AtomicInteger counter = new AtomicInteger();
+		IdBlockAllocator first = new IdBlockAllocator(counter::addAndGet, 10);
+		IdBlockAllocator second = new IdBlockAllocator(counter::addAndGet, 10);
+		Set<Integer> ids = ConcurrentHashMap.newKeySet();
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		for (int i = 0; i < 1_000; i++) {
+			IdBlockAllocator allocator = i % 2 == 0 ? first : second;
+			executor.execute(() -> ids.add(allocator.nextId()));
+		}
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+
+		assertEquals(1_000, ids.size());
+	}
+
+	@Test
+	void reportsFailedReservation() {
+		IdBlockAllocator allocator = new IdBlockAllocator(size -> {
+			throw new IllegalStateException("sin conexion");
+		}, 10);
+
+		assertThrows(IllegalStateException.class, allocator::nextId);
+	}
+}
@@ -0,0 +1,120 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import main.InventorySnapshotFile;
+import main.Shop;
+import model.Product;
+import utils.EmbeddedMongoServer;
+import utils.MongoClientHolder;
+import utils.MongoSupport;
+
+/**
+ * Change streams contra un replica set embebido de un solo nodo.
+ */
+class InventoryChangeStreamIntegrationTest {
+
+	@TempDir
+	Path tempDir;
+
+	private Path snapshotFile;
+
+	@BeforeEach
+	void startReplicaSet() throws IOException {
+		snapshotFile = tempDir.resolve("inventory.snapshot");
+		System.setProperty("shop.dao", "mongo");
+		System.setProperty("shop.mongo.connectionString", "mongodb://localhost:" + randomPort());
+		System.setProperty("shop.mongo.database", "shop_changes_" + System.nanoTime());
+		System.setProperty("shop.mongo.autoSeed", "true");
+		System.setProperty("shop.mongo.embedded", "true");
+		System.setProperty("shop.mongo.replicaSet", "rs0");
+		System.setProperty("shop.mongo.changeStream", "true");
+		System.setProperty("shop.mongo.changeStream.snapshotFile", snapshotFile.toString());
+	}
+
+	@AfterEach
+	void cleanup() {
+		for (String property : new String[] { "shop.dao", "shop.mongo.connectionString", "shop.mongo.database",
+				"shop.mongo.autoSeed", "shop.mongo.embedded", "shop.mongo.replicaSet", "shop.mongo.changeStream",
+				"shop.mongo.changeStream.snapshotFile" }) {
+			System.clearProperty(property);
+		}
+		MongoClientHolder.shutdown();
+		MongoSupport.resetInitialization();
+		EmbeddedMongoServer.stop();
+	}
+
+	@Test
+	void changesFromOtherTerminalsReachTheLocalInventory() throws InterruptedException {
+		Shop shop = new Shop();
+		shop.initializeInventory();
+		Dao otherTerminal = new DaoImplMongoDB();
+
+		try {
+			otherTerminal.adjustStock(1, -5);
+			Product kiwi = new Product("Kiwi", 3.5, true, 12);
+			otherTerminal.addProduct(kiwi);
+			otherTerminal.deleteProduct(2);
+
+			awaitTrue(() -> shop.findProductById(1).getStock() == 45);
+			awaitTrue(() -> shop.findProductById(kiwi.getId()) != null);
+			awaitTrue(() -> shop.findProductById(2) == null);
+		} finally {
+			shop.stopInventorySync();
+		}
+		assertTrue(Files.exists(snapshotFile));
+	}
+
+	@Test
+	void restartResumesFromTheLocalSnapshot() throws InterruptedException {
+		Shop first = new Shop();
+		first.initializeInventory();
+		first.stopInventorySync();
+
+		// cambio hecho mientras la terminal esta apagada
+		new DaoImplMongoDB().adjustStock(3, -20);
+
+		InventorySnapshotFile.Snapshot snapshot = InventorySnapshotFile.read(snapshotFile);
+		assertNotNull(snapshot);
+		assertEquals(5, snapshot.products().size());
+
+		Shop restarted = new Shop();
+		restarted.initializeInventory();
+		try {
+			awaitTrue(() -> restarted.findProductById(3).getStock() == 0);
+			assertNull(restarted.findProductById(6));
+		} finally {
+			restarted.stopInventorySync();
+		}
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 15_000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) {
+				throw new AssertionError("El cambio no ha llegado al inventario local");
+			}
+			Thread.sleep(50);
+		}
+	}
+
+	private static int randomPort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
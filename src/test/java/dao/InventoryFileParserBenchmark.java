@@ -0,0 +1,112 @@
+package dao;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import model.Product;
+
+/**
+ * Compara la lectura del fichero de inventario con el lector anterior de
+ * DaoImplFile (BufferedReader + split(";") + split(":")) frente a
+ * {@link InventoryFileParser}.
+ *
+ * No es una prueba (surefire no la ejecuta). Genera un fichero temporal con el
+ * número de líneas indicado y lo borra al terminar. Uso:
+ * {@code java -cp <test-classpath> dao.InventoryFileParserBenchmark [lineas]}
+ * (2.000.000 por defecto).
+ */
+public class InventoryFileParserBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int lines = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+		Path file = Files.createTempFile("inventory-benchmark", ".txt");
+		try {
+			writeSample(file, lines);
+			long bytes = Files.size(file);
+
+			// calentamiento para que el JIT compile ambos caminos
+			parseWithSplit(file);
+			new InventoryFileParser().parse(file, product -> { });
+
+			report("BufferedReader + split", lines, bytes, () -> parseWithSplit(file));
+			report("InventoryFileParser", lines, bytes, () -> {
+				long[] checksum = new long[1];
+				new InventoryFileParser().parse(file, product -> checksum[0] += product.getStock());
+				return checksum[0];
+			});
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	private static void writeSample(Path file, int lines) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			for (int i = 1; i <= lines; i++) {
+				writer.write("Product:Producto " + i + ";Wholesaler Price:" + (i % 1000 + 0.25) + ";Stock:" + (i % 97)
+						+ ";Id:" + i);
+				writer.newLine();
+			}
+		}
+	}
+
+	private static long parseWithSplit(Path file) throws IOException {
+		long checksum = 0;
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			int lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				checksum += parseLine(line, lineNumber).getStock();
+			}
+		}
+		return checksum;
+	}
+
+	/**
+	 * Lector anterior de DaoImplFile.parseLine, conservado como referencia.
+	 */
+	private static Product parseLine(String line, int lineNumber) {
+		String[] sections = line.split(";");
+		int id = lineNumber;
+		String name = "";
+		double price = 0.0;
+		int stock = 0;
+		for (int i = 0; i < sections.length; i++) {
+			String[] data = sections[i].split(":");
+			switch (i) {
+			case 0:
+				name = data[1];
+				break;
+			case 1:
+				price = Double.parseDouble(data[1]);
+				break;
+			case 2:
+				stock = Integer.parseInt(data[1]);
+				break;
+			case 3:
+				id = Integer.parseInt(data[1]);
+				break;
+			default:
+				break;
+			}
+		}
+		return new Product(id, name, price, true, stock);
+	}
+
+	@FunctionalInterface
+	private interface Run {
+		long run() throws IOException;
+	}
+
+	private static void report(String label, int lines, long bytes, Run run) throws IOException {
+		long start = System.nanoTime();
+		long checksum = run.run();
+		long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+		System.out.printf("%-24s %,d lineas en %,d ms (%,d lineas/s, %.1f MB/s) [checksum %d]%n", label, lines,
+				elapsedMillis, lines * 1000L / elapsedMillis, bytes / 1048576.0 * 1000 / elapsedMillis, checksum);
+	}
+}
@@ -0,0 +1,106 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import exception.InventoryFormatException;
+import model.Product;
+
+class InventoryFileParserTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void parsesAllFieldsAndDefaultsMissingIdToLineNumber() throws IOException {
+		Path file = write("Product:Manzana;Wholesaler Price:10.0;Stock:10;Id:3\r\n"
+				+ "\n"
+				+ "Product:Piña;Wholesaler Price:0.1;Stock:20\n"
+				+ "Product:Kiwi;Wholesaler Price:1.0E3;Stock:-5;Id:7;Extra:1");
+
+		List<Product> products = parse(new InventoryFileParser(), file);
+
+		assertEquals(3, products.size());
+		assertProduct(products.get(0), 3, "Manzana", 10.0, 10);
+		assertProduct(products.get(1), 3, "Piña", 0.1, 20);
+		assertProduct(products.get(2), 7, "Kiwi", 1000.0, -5);
+	}
+
+	@Test
+	void pricesMatchDoubleParseDouble() throws IOException {
+		String[] prices = { "0.1", "0.3", "19.99", "123456.789", "5", "-2.5", "999999999999.99", "3.141592653589793" };
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < prices.length; i++) {
+			content.append("Product:P").append(i).append(";Wholesaler Price:").append(prices[i])
+					.append(";Stock:1;Id:").append(i + 1).append('\n');
+		}
+
+		List<Product> products = parse(new InventoryFileParser(), write(content.toString()));
+
+		for (int i = 0; i < prices.length; i++) {
+			assertEquals(Double.parseDouble(prices[i]), products.get(i).getPrice(), 0.0, prices[i]);
+		}
+	}
+
+	@Test
+	void linesSpanningWindowsAreReadAgainFromTheirStart() throws IOException {
+		StringBuilder content = new StringBuilder();
+		for (int i = 1; i <= 100; i++) {
+			content.append("Product:Producto ").append(i).append(";Wholesaler Price:").append(i)
+					.append(".5;Stock:").append(i).append(";Id:").append(i).append('\n');
+		}
+		Path file = write(content.toString());
+
+		List<Product> products = parse(new InventoryFileParser(80), file);
+
+		assertEquals(100, products.size());
+		assertProduct(products.get(99), 100, "Producto 100", 100.5, 100);
+	}
+
+	@Test
+	void malformedLinesReportTheirLineNumber() throws IOException {
+		Path badPrice = write("Product:A;Wholesaler Price:1;Stock:1\nProduct:B;Wholesaler Price:abc;Stock:1\n");
+		InventoryFormatException priceError = assertThrows(InventoryFormatException.class,
+				() -> parse(new InventoryFileParser(), badPrice));
+		assertEquals(2, priceError.getLineNumber());
+		assertTrue(priceError.getMessage().contains("abc"));
+
+		Path missingColon = write("Product:A;Wholesaler Price 1;Stock:1\n");
+		assertEquals(1, assertThrows(InventoryFormatException.class,
+				() -> parse(new InventoryFileParser(), missingColon)).getLineNumber());
+
+		Path longLine = write("Product:Nombre demasiado largo para la ventana;Wholesaler Price:1;Stock:1\n");
+		assertThrows(InventoryFormatException.class, () -> parse(new InventoryFileParser(16), longLine));
+	}
+
+	private Path write(String content) throws IOException {
+		Path file = Files.createTempFile(tempDir, "inventory", ".txt");
+		Files.writeString(file, content, StandardCharsets.UTF_8);
+		return file;
+	}
+
+	private static List<Product> parse(InventoryFileParser parser, Path file) throws IOException {
+		List<Product> products = new ArrayList<>();
+		long count = parser.parse(file, products::add);
+		assertEquals(products.size(), count);
+		return products;
+	}
+
+	private static void assertProduct(Product product, int id, String name, double price, int stock) {
+		assertEquals(id, product.getId());
+		assertEquals(name, product.getName());
+		assertEquals(price, product.getPrice(), 0.0);
+		assertEquals(stock, product.getStock());
+	}
+}
@@ -0,0 +1,126 @@
+package main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import model.Product;
+
+class InventoryStoreTest {
+
+	@Test
+	void findsProductsByIdAndByNameIgnoringCase() {
+		InventoryStore store = new InventoryStore();
+		Product apple = new Product(1, "Manzana", 10.0, true, 50);
+		Product pear = new Product(2, "Pera", 15.0, true, 30);
+
+		store.add(apple);
+		store.add(pear);
+
+		assertSame(apple, store.findByName("MANZANA"));
+		assertSame(pear, store.findById(2));
+		assertEquals(2, store.getMaxId());
+		assertNull(store.findByName("Fresa"));
+	}
+
+	@Test
+	void removingIndexedDuplicateNamePromotesTheNextOne() {
+		InventoryStore store = new InventoryStore();
+		Product first = new Product(1, "Leche", 5.0, true, 10);
+		Product second = new Product(2, "leche", 4.0, true, 20);
+		store.add(first);
+		store.add(second);
+
+		assertSame(first, store.findByName("Leche"));
+		assertSame(first, store.removeById(1));
+
+		assertSame(second, store.findByName("LECHE"));
+		assertEquals(1, store.size());
+	}
+
+	@Test
+	void renamedProductIsReindexed() {
+		InventoryStore store = new InventoryStore();
+		Product product = new Product(7, "Yogur", 2.0, true, 5);
+		store.add(product);
+
+		product.setName("Yogurt");
+		store.reindex(product);
+
+		assertNull(store.findByName("Yogur"));
+		assertSame(product, store.findByName("yogurt"));
+	}
+
+	@Test
+	void reindexMovesOnlyTheOldIdAndNameEntries() {
+		InventoryStore store = new InventoryStore();
+		Product cheese = new Product(1, "Leche", 5.0, true, 10);
+		Product milk = new Product(2, "leche", 4.0, true, 20);
+		store.add(cheese);
+		store.add(milk);
+
+		cheese.setName("Queso");
+		cheese.setId(9);
+		store.reindex(cheese);
+
+		assertSame(milk, store.findByName("Leche"));
+		assertNull(store.findById(1));
+		assertSame(cheese, store.findById(9));
+		assertTrue(store.remove(cheese));
+		assertNull(store.findByName("queso"));
+		assertSame(milk, store.findByName("leche"));
+	}
+
+	@Test
+	void rejectsDuplicateIdsAndReplacesOnReindex() {
+		InventoryStore store = new InventoryStore();
+		Product bread = new Product(1, "Pan", 1.0, true, 10);
+		Product copy = new Product(1, "Pan integral", 1.5, true, 5);
+		Product water = new Product(2, "Agua", 0.5, true, 40);
+		store.add(bread);
+
+		assertFalse(store.add(copy));
+		assertSame(bread, store.findById(1));
+		assertNull(store.findByName("pan integral"));
+		assertEquals(1, store.size());
+
+		store.add(water);
+		water.setId(1);
+		store.reindex(water);
+
+		assertSame(water, store.findById(1));
+		assertFalse(store.contains(bread));
+		assertNull(store.findByName("pan"));
+		assertEquals(1, store.size());
+	}
+
+	@Test
+	void rejectsProductsBeyondConfiguredCapacity() {
+		InventoryStore store = new InventoryStore(2);
+
+		assertTrue(store.add(new Product(1, "A", 1.0, true, 1)));
+		assertTrue(store.add(new Product(2, "B", 1.0, true, 1)));
+		assertFalse(store.add(new Product(3, "C", 1.0, true, 1)));
+
+		assertTrue(store.isFull());
+		assertEquals(0, store.getRemainingCapacity());
+		assertNull(store.findById(3));
+	}
+
+	@Test
+	void holdsLargeCataloguesWithConstantLookups() {
+		InventoryStore store = new InventoryStore();
+		int size = 200_000;
+		for (int id = 1; id <= size; id++) {
+			store.add(new Product(id, "Producto " + id, 1.0, true, id));
+		}
+
+		assertEquals(size, store.size());
+		assertEquals(size / 2, store.findByName("producto " + (size / 2)).getStock());
+		assertTrue(store.estimateMemoryBytes() > 0);
+	}
+}
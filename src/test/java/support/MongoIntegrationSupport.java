@@ -20,6 +20,8 @@ import de.flapdoodle.embed.mongo.config.MongodConfig;
 import de.flapdoodle.embed.mongo.config.Net;
 import de.flapdoodle.embed.mongo.distribution.Version;
 import de.flapdoodle.embed.process.runtime.Network;
+import utils.MongoClientHolder;
+import utils.MongoSupport;
 
 /**
  * Base para pruebas de integracion con MongoDB embebido.
@@ -58,6 +60,7 @@ public abstract class MongoIntegrationSupport {
 		try (MongoClient client = MongoClients.create(connectionString)) {
 			client.getDatabase(databaseName).drop();
 		}
+		MongoSupport.resetInitialization();
 	}
 
 	@AfterAll
@@ -66,6 +69,7 @@ public abstract class MongoIntegrationSupport {
 		System.clearProperty("shop.mongo.connectionString");
 		System.clearProperty("shop.mongo.database");
 		System.clearProperty("shop.mongo.autoSeed");
+		MongoClientHolder.shutdown();
 
 		if (mongodProcess != null) {
 			mongodProcess.stop();
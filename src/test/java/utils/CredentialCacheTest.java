@@ -0,0 +1,83 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class CredentialCacheTest {
+
+	private final AtomicLong now = new AtomicLong(1_000);
+
+	@Test
+	void verifiesOnlyTheStoredPassword() {
+		CredentialCache cache = new CredentialCache(60_000, 10, 100, now::get);
+
+		assertFalse(cache.verify(1, "1234"));
+		cache.store(1, "1234");
+
+		assertTrue(cache.verify(1, "1234"));
+		assertFalse(cache.verify(1, "12345"));
+		assertFalse(cache.verify(2, "1234"));
+		assertEquals(1, cache.getHits());
+		assertEquals(3, cache.getMisses());
+	}
+
+	@Test
+	void expiredAndInvalidatedCredentialsAreNotAccepted() {
+		CredentialCache cache = new CredentialCache(60_000, 10, 100, now::get);
+		cache.store(1, "1234");
+		cache.store(2, "abcd");
+
+		now.addAndGet(60_000);
+		assertFalse(cache.verify(1, "1234"));
+
+		cache.store(1, "1234");
+		cache.invalidate(1);
+		assertFalse(cache.verify(1, "1234"));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedEmployee() {
+		CredentialCache cache = new CredentialCache(60_000, 2, 100, now::get);
+		cache.store(1, "a");
+		cache.store(2, "b");
+		assertTrue(cache.verify(1, "a"));
+
+		cache.store(3, "c");
+
+		assertTrue(cache.verify(1, "a"));
+		assertFalse(cache.verify(2, "b"));
+		assertTrue(cache.verify(3, "c"));
+		assertEquals(1, cache.getEvictions());
+	}
+
+	@Test
+	void zeroTtlDisablesTheCache() {
+		CredentialCache cache = new CredentialCache(0, 10, 100, now::get);
+		cache.store(1, "1234");
+
+		assertFalse(cache.isEnabled());
+		assertFalse(cache.verify(1, "1234"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void employeeWritesDiscardCachedAndInFlightCredentials() {
+		CredentialCache cache = new CredentialCache(60_000, 10, 100, now::get);
+		cache.store(1, "1234");
+		long beforeRead = CredentialCache.getEmployeeWrites();
+
+		CredentialCache.recordEmployeeWrite();
+
+		assertFalse(cache.verify(1, "1234"));
+		cache.store(1, "1234", beforeRead);
+		assertFalse(cache.verify(1, "1234"));
+		cache.store(1, "1234");
+		assertTrue(cache.verify(1, "1234"));
+	}
+}
@@ -0,0 +1,95 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class JdbcConnectionPoolTest {
+
+	private JdbcConnectionPool pool;
+
+	@AfterEach
+	void closePool() {
+		if (pool != null) {
+			pool.close();
+		}
+	}
+
+	@Test
+	void reusesReleasedConnectionInsteadOfOpeningANewOne() throws SQLException {
+		pool = newPool(2, 60_000);
+
+		JdbcConnectionPool.PooledConnection first = pool.borrow();
+		pool.release(first);
+		JdbcConnectionPool.PooledConnection second = pool.borrow();
+
+		assertSame(first.getConnection(), second.getConnection());
+		assertEquals(1, pool.getOpenCount());
+		pool.release(second);
+	}
+
+	@Test
+	void borrowTimesOutWhenAllConnectionsAreInUse() throws SQLException {
+		pool = newPool(1, 60_000);
+		JdbcConnectionPool.PooledConnection busy = pool.borrow();
+
+		assertThrows(SQLTimeoutException.class, pool::borrow);
+
+		pool.release(busy);
+		assertEquals(0, pool.getActiveCount());
+	}
+
+	@Test
+	void replacesConnectionsThatWereClosedWhileIdle() throws SQLException {
+		pool = newPool(2, 60_000);
+		JdbcConnectionPool.PooledConnection broken = pool.borrow();
+		pool.release(broken);
+		broken.getConnection().close();
+
+		JdbcConnectionPool.PooledConnection fresh = pool.borrow();
+
+		assertNotSame(broken.getConnection(), fresh.getConnection());
+		assertTrue(fresh.getConnection().isValid(1));
+		assertEquals(1, pool.getOpenCount());
+		pool.release(fresh);
+	}
+
+	@Test
+	void releaseRollsBackPendingTransaction() throws SQLException {
+		pool = newPool(1, 60_000);
+		JdbcConnectionPool.PooledConnection pooled = pool.borrow();
+		pooled.getConnection().setAutoCommit(false);
+
+		pool.release(pooled);
+
+		assertTrue(pool.borrow().getConnection().getAutoCommit());
+	}
+
+	@Test
+	void evictsIdleConnectionsAboveMinimum() throws Exception {
+		pool = newPool(3, 1);
+		JdbcConnectionPool.PooledConnection a = pool.borrow();
+		JdbcConnectionPool.PooledConnection b = pool.borrow();
+		pool.release(a);
+		pool.release(b);
+		Thread.sleep(10);
+
+		pool.evictIdle();
+
+		assertEquals(0, pool.getOpenCount());
+		assertEquals(0, pool.getIdleCount());
+	}
+
+	private JdbcConnectionPool newPool(int maxSize, long idleTimeoutMillis) {
+		String url = "jdbc:h2:mem:pool_" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+		return new JdbcConnectionPool(url, "sa", "", 0, maxSize, idleTimeoutMillis, 200);
+	}
+}
@@ -0,0 +1,99 @@
+package utils;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongSupplier;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import model.Product;
+
+/**
+ * Mide la decodificación de documentos de inventario: mapeo manual desde
+ * org.bson.Document (como hacía DaoImplMongoDB) frente a {@link ProductCodec}.
+ *
+ * No es una prueba (surefire no la ejecuta). Uso:
+ * {@code java -cp <test-classpath> utils.ProductCodecBenchmark [documentos]}
+ * (1.000.000 por defecto).
+ */
+public class ProductCodecBenchmark {
+
+	/** Documentos distintos que se codifican una vez y se decodifican en bucle */
+	private static final int DISTINCT_DOCUMENTS = 1_000;
+
+	public static void main(String[] args) {
+		int documents = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		byte[][] encoded = encodeSample();
+
+		// calentamiento para que el JIT compile ambos caminos
+		decodeWithDocument(encoded, documents / 10);
+		decodeWithCodec(encoded, documents / 10);
+
+		report("Document + mapeo manual", documents, () -> decodeWithDocument(encoded, documents));
+		report("ProductCodec", documents, () -> decodeWithCodec(encoded, documents));
+	}
+
+	private static byte[][] encodeSample() {
+		ProductCodec codec = new ProductCodec();
+		byte[][] encoded = new byte[DISTINCT_DOCUMENTS][];
+		for (int i = 0; i < DISTINCT_DOCUMENTS; i++) {
+			Product product = new Product(i + 1, "Producto " + (i + 1), 1.5 + i, i % 7 != 0, i * 3);
+			BasicOutputBuffer buffer = new BasicOutputBuffer();
+			try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+				codec.encode(writer, product, EncoderContext.builder().build());
+			}
+			encoded[i] = buffer.toByteArray();
+		}
+		return encoded;
+	}
+
+	private static long decodeWithDocument(byte[][] encoded, int documents) {
+		DocumentCodec codec = new DocumentCodec();
+		DecoderContext context = DecoderContext.builder().build();
+		long checksum = 0;
+		for (int i = 0; i < documents; i++) {
+			try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(encoded[i % encoded.length]))) {
+				checksum += toProduct(codec.decode(reader, context)).getStock();
+			}
+		}
+		return checksum;
+	}
+
+	private static long decodeWithCodec(byte[][] encoded, int documents) {
+		ProductCodec codec = new ProductCodec();
+		DecoderContext context = DecoderContext.builder().build();
+		long checksum = 0;
+		for (int i = 0; i < documents; i++) {
+			try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(encoded[i % encoded.length]))) {
+				checksum += codec.decode(reader, context).getStock();
+			}
+		}
+		return checksum;
+	}
+
+	/**
+	 * Mapeo anterior de DaoImplMongoDB.toProduct, conservado como referencia.
+	 */
+	private static Product toProduct(Document document) {
+		Document wholesalePrice = document.get("wholesalePrice", Document.class);
+		double price = 0.0;
+		if (wholesalePrice != null && wholesalePrice.get("value") instanceof Number number) {
+			price = number.doubleValue();
+		}
+		return new Product(((Number) document.get("id")).intValue(), document.getString("name"), price,
+				document.getBoolean("available", Boolean.TRUE), ((Number) document.get("stock")).intValue());
+	}
+
+	private static void report(String label, int documents, LongSupplier run) {
+		long start = System.nanoTime();
+		long checksum = run.getAsLong();
+		long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+		System.out.printf("%-26s %,d documentos en %,d ms (%,d docs/s) [checksum %d]%n", label, documents,
+				elapsedMillis, documents * 1000L / elapsedMillis, checksum);
+	}
+}
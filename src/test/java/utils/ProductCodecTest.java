@@ -0,0 +1,74 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Date;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonDocumentWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.junit.jupiter.api.Test;
+
+import model.Product;
+
+class ProductCodecTest {
+
+	private final ProductCodec codec = new ProductCodec();
+
+	@Test
+	void keepsTheExistingInventoryDocumentLayout() {
+		BsonDocument encoded = new BsonDocument();
+		codec.encode(new BsonDocumentWriter(encoded), new Product(3, "Hamburguesa", 25.0, false, 20),
+				EncoderContext.builder().build());
+
+		assertEquals(MongoSupport.inventoryDocument(3, "Hamburguesa", 25.0, false, 20)
+				.toBsonDocument(), encoded);
+	}
+
+	@Test
+	void decodesDocumentsWrittenByOtherClients() {
+		Document stored = new Document("_id", "x")
+				.append("id", 7L)
+				.append("name", "Leche")
+				.append("wholesalePrice", new Document("value", 5).append("currency", "EUR"))
+				.append("available", false)
+				.append("stock", 100.0)
+				.append("created_at", new java.util.Date());
+
+		Product product = codec.decode(new BsonDocumentReader(stored.toBsonDocument()),
+				DecoderContext.builder().build());
+
+		assertEquals(7, product.getId());
+		assertEquals("Leche", product.getName());
+		assertEquals(5.0, product.getPrice());
+		assertFalse(product.isAvailable());
+		assertEquals(100, product.getStock());
+	}
+
+	@Test
+	void snapshotsRoundTripWithTheirCreationDate() {
+		ProductCodec.SnapshotCodec snapshotCodec = new ProductCodec.SnapshotCodec();
+		Date createdAt = new Date(1_700_000_000_000L);
+		BsonDocument encoded = new BsonDocument();
+		snapshotCodec.encode(new BsonDocumentWriter(encoded),
+				new ProductCodec.Snapshot(new Product(4, "Fresa", 5.0, true, 9), createdAt),
+				EncoderContext.builder().build());
+
+		ProductCodec.Snapshot decoded = snapshotCodec.decode(new BsonDocumentReader(encoded),
+				DecoderContext.builder().build());
+
+		assertEquals(createdAt, decoded.createdAt());
+		assertEquals(4, decoded.product().getId());
+		assertEquals("Fresa", decoded.product().getName());
+		assertEquals(9, decoded.product().getStock());
+
+		BsonDocument withoutDate = MongoSupport.inventoryDocument(4, "Fresa", 5.0, true, 9).toBsonDocument();
+		assertNull(snapshotCodec.decode(new BsonDocumentReader(withoutDate), DecoderContext.builder().build())
+				.createdAt());
+	}
+}
@@ -0,0 +1,70 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StatementCacheTest {
+
+	private Connection connection;
+
+	@BeforeEach
+	void openConnection() throws SQLException {
+		connection = DriverManager.getConnection("jdbc:h2:mem:statements_" + System.nanoTime());
+	}
+
+	@AfterEach
+	void closeConnection() throws SQLException {
+		connection.close();
+	}
+
+	@Test
+	void reusesStatementForSameSql() throws SQLException {
+		StatementCache cache = new StatementCache(connection, 4);
+
+		PreparedStatement first = cache.prepare("SELECT ?", false);
+		PreparedStatement second = cache.prepare("SELECT ?", false);
+		PreparedStatement withKeys = cache.prepare("SELECT ?", true);
+
+		assertSame(first, second);
+		assertNotSame(first, withKeys);
+		assertEquals(1, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	void closesLeastRecentlyUsedStatementWhenFull() throws SQLException {
+		StatementCache cache = new StatementCache(connection, 2);
+		PreparedStatement one = cache.prepare("SELECT 1", false);
+		cache.prepare("SELECT 2", false);
+		cache.prepare("SELECT 1", false);
+
+		PreparedStatement three = cache.prepare("SELECT 3", false);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		assertTrue(!one.isClosed() && !three.isClosed());
+		assertSame(one, cache.prepare("SELECT 1", false));
+	}
+
+	@Test
+	void disabledCacheClosesStatementsOnRelease() throws SQLException {
+		StatementCache cache = new StatementCache(connection, 0);
+		PreparedStatement ps = cache.prepare("SELECT 1", false);
+
+		cache.releaseUncached();
+
+		assertTrue(ps.isClosed());
+		assertEquals(0, cache.size());
+	}
+}
@@ -9,4 +9,6 @@ public class Constants {
 	
 	public static final int MAX_LOGIN_TIMES = 3;
 
+	public static final int INVENTORY_FETCH_SIZE = 500;
+
 }
@@ -0,0 +1,212 @@
+package utils;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Caché acotada de credenciales ya verificadas contra el almacenamiento.
+ *
+ * Por cada empleado guarda una sal aleatoria y el hash PBKDF2 de la contraseña
+ * que se validó (nunca la contraseña), con una caducidad. Un login repetido se
+ * comprueba recalculando el hash y comparándolo en tiempo constante, sin ir a
+ * la base de datos. Al superar el tamaño máximo se descarta el empleado que
+ * lleva más tiempo sin iniciar sesión.
+ *
+ * Cualquier código que escriba empleados en un almacenamiento debe llamar a
+ * {@link #recordEmployeeWrite()}: las entradas guardadas antes de esa escritura
+ * dejan de aceptarse en todas las cachés del proceso. Hoy las únicas escrituras
+ * de empleados de la aplicación son las cargas iniciales de ObjectDbSupport y
+ * MongoSupport, y ambas lo llaman.
+ *
+ * Solo se ven las escrituras hechas en este proceso: un cambio o baja de
+ * contraseña hecho desde fuera (create_tables.sql, otra instancia, un cliente
+ * de base de datos) sigue aceptando la contraseña anterior hasta que caduca la
+ * entrada. Si los empleados se administran fuera de la aplicación, conviene
+ * bajar shop.login.cache.ttlSeconds o ponerlo a 0.
+ *
+ * Configuración por propiedades del sistema:
+ * shop.login.cache.ttlSeconds (600 por defecto, 0 desactiva la caché),
+ * shop.login.cache.size (1000 por defecto),
+ * shop.login.cache.hashIterations (10000 por defecto; más iteraciones encarecen
+ * cada comprobación y también un ataque sobre un volcado de memoria).
+ */
+public final class CredentialCache {
+
+	private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+	private static final int SALT_BYTES = 16;
+	private static final int HASH_BITS = 256;
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	/** Escrituras de empleados en el proceso; cada entrada guarda el valor al leer su registro */
+	private static final AtomicLong EMPLOYEE_WRITES = new AtomicLong();
+
+	private final long ttlMillis;
+	private final int maxSize;
+	private final int iterations;
+	private final LongSupplier clock;
+
+	/** Entradas por empleado, en orden de acceso (la primera es la menos reciente) */
+	private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	private record Entry(byte[] salt, byte[] hash, long expiresAt, long employeeWrites) {
+	}
+
+	public CredentialCache() {
+		this(Integer.getInteger("shop.login.cache.ttlSeconds", 600) * 1000L,
+				Integer.getInteger("shop.login.cache.size", 1000),
+				Integer.getInteger("shop.login.cache.hashIterations", 10_000), System::currentTimeMillis);
+	}
+
+	/**
+	 * @param ttlMillis tiempo de validez de una credencial cacheada (0 para desactivar)
+	 * @param maxSize número máximo de empleados cacheados
+	 * @param iterations iteraciones de PBKDF2
+	 * @param clock reloj en milisegundos
+	 */
+	public CredentialCache(long ttlMillis, int maxSize, int iterations, LongSupplier clock) {
+		if (ttlMillis < 0 || maxSize < 0 || iterations <= 0) {
+			throw new IllegalArgumentException("Configuracion de cache de login no valida");
+		}
+		this.ttlMillis = ttlMillis;
+		this.maxSize = maxSize;
+		this.iterations = iterations;
+		this.clock = clock;
+	}
+
+	/**
+	 * Anota que se ha creado, modificado o eliminado algún empleado: ninguna caché
+	 * acepta ya las credenciales que se validaron antes.
+	 */
+	public static void recordEmployeeWrite() {
+		EMPLOYEE_WRITES.incrementAndGet();
+	}
+
+	/**
+	 * @return contador de escrituras de empleados, para pasarlo a
+	 *         {@link #store(int, String, long)} tomado antes de leer el registro
+	 */
+	public static long getEmployeeWrites() {
+		return EMPLOYEE_WRITES.get();
+	}
+
+	public boolean isEnabled() {
+		return ttlMillis > 0 && maxSize > 0;
+	}
+
+	/**
+	 * @return true si la contraseña coincide con una credencial cacheada y vigente
+	 */
+	public boolean verify(int employeeId, String password) {
+		if (!isEnabled() || password == null) {
+			return false;
+		}
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(employeeId);
+			if (entry != null && (entry.expiresAt() <= clock.getAsLong()
+					|| entry.employeeWrites() != EMPLOYEE_WRITES.get())) {
+				entries.remove(employeeId);
+				entry = null;
+			}
+			if (entry == null) {
+				misses++;
+				return false;
+			}
+		}
+		// el hash se calcula fuera del bloqueo: es la parte lenta
+		boolean matches = MessageDigest.isEqual(entry.hash(), hash(password, entry.salt()));
+		synchronized (this) {
+			if (matches) {
+				hits++;
+			} else {
+				misses++;
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Guarda una credencial recién validada contra el almacenamiento.
+	 */
+	public void store(int employeeId, String password) {
+		store(employeeId, password, getEmployeeWrites());
+	}
+
+	/**
+	 * Guarda una credencial validada con un registro leído cuando el contador de
+	 * escrituras valía {@code employeeWrites}. Si ha habido escrituras desde
+	 * entonces, el registro puede estar desfasado y no se guarda.
+	 */
+	public void store(int employeeId, String password, long employeeWrites) {
+		if (!isEnabled() || password == null) {
+			return;
+		}
+		byte[] salt = new byte[SALT_BYTES];
+		RANDOM.nextBytes(salt);
+		Entry entry = new Entry(salt, hash(password, salt), clock.getAsLong() + ttlMillis, employeeWrites);
+		synchronized (this) {
+			if (employeeWrites != EMPLOYEE_WRITES.get()) {
+				return;
+			}
+			entries.put(employeeId, entry);
+			Iterator<Map.Entry<Integer, Entry>> iterator = entries.entrySet().iterator();
+			while (entries.size() > maxSize && iterator.hasNext()) {
+				iterator.next();
+				iterator.remove();
+				evictions++;
+			}
+		}
+	}
+
+	/**
+	 * Descarta la credencial de un empleado (por ejemplo, al cambiar su contraseña).
+	 */
+	public synchronized void invalidate(int employeeId) {
+		entries.remove(employeeId);
+	}
+
+	public synchronized void invalidateAll() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	private byte[] hash(String password, byte[] salt) {
+		PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+		try {
+			return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+		} catch (GeneralSecurityException ex) {
+			throw new IllegalStateException(ALGORITHM + " no disponible", ex);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+}
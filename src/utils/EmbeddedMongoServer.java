@@ -1,22 +1,39 @@
 package utils;
 
 import java.io.IOException;
+import java.util.List;
+
+import org.bson.Document;
 
 import com.mongodb.ConnectionString;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoDatabase;
 
 import de.flapdoodle.embed.mongo.MongodExecutable;
 import de.flapdoodle.embed.mongo.MongodProcess;
 import de.flapdoodle.embed.mongo.MongodStarter;
+import de.flapdoodle.embed.mongo.config.ImmutableMongodConfig;
 import de.flapdoodle.embed.mongo.config.MongodConfig;
 import de.flapdoodle.embed.mongo.config.Net;
+import de.flapdoodle.embed.mongo.config.Storage;
 import de.flapdoodle.embed.mongo.distribution.Version;
 import de.flapdoodle.embed.process.runtime.Network;
 
 /**
  * Arranca un servidor MongoDB embebido cuando no hay una instancia local disponible.
+ *
+ * Con -Dshop.mongo.replicaSet=&lt;nombre&gt; arranca como replica set de un solo nodo,
+ * necesario para los change streams del inventario.
  */
 public final class EmbeddedMongoServer {
 
+	/** Tamaño del oplog del replica set embebido, en MB */
+	private static final int REPLICA_SET_OPLOG_MB = 64;
+
+	/** Espera máxima a que el nodo pase a primario */
+	private static final long PRIMARY_WAIT_MS = 30_000;
+
 	private static MongodExecutable executable;
 	private static MongodProcess process;
 
@@ -30,19 +47,57 @@ public final class EmbeddedMongoServer {
 
 		ConnectionString parsed = new ConnectionString(connectionString);
 		int port = extractPort(parsed);
+		String replicaSet = getReplicaSetName();
 
 		try {
-			MongodConfig config = MongodConfig.builder()
+			ImmutableMongodConfig.Builder builder = MongodConfig.builder()
 					.version(Version.Main.V6_0)
-					.net(new Net(port, Network.localhostIsIPv6()))
-					.build();
+					.net(new Net(port, Network.localhostIsIPv6()));
+			if (replicaSet != null) {
+				builder.replication(new Storage(null, replicaSet, REPLICA_SET_OPLOG_MB));
+			}
 
-			executable = MongodStarter.getDefaultInstance().prepare(config);
+			executable = MongodStarter.getDefaultInstance().prepare(builder.build());
 			process = executable.start();
 			Runtime.getRuntime().addShutdownHook(new Thread(EmbeddedMongoServer::stop));
 		} catch (IOException ex) {
 			throw new IllegalStateException("No se ha podido arrancar MongoDB embebido", ex);
 		}
+
+		if (replicaSet != null) {
+			initiateReplicaSet(port, replicaSet);
+		}
+	}
+
+	/**
+	 * @return nombre del replica set configurado, o null para arrancar un servidor aislado
+	 */
+	public static String getReplicaSetName() {
+		String name = System.getProperty("shop.mongo.replicaSet");
+		return name == null || name.isBlank() ? null : name.trim();
+	}
+
+	/**
+	 * Inicia el replica set de un solo nodo y espera a que el nodo sea primario.
+	 */
+	private static void initiateReplicaSet(int port, String replicaSet) {
+		String host = "localhost:" + port;
+		try (MongoClient client = MongoClients.create("mongodb://" + host + "/?directConnection=true")) {
+			MongoDatabase admin = client.getDatabase("admin");
+			admin.runCommand(new Document("replSetInitiate", new Document("_id", replicaSet)
+					.append("members", List.of(new Document("_id", 0).append("host", host)))));
+
+			long deadline = System.currentTimeMillis() + PRIMARY_WAIT_MS;
+			while (!Boolean.TRUE.equals(admin.runCommand(new Document("hello", 1)).getBoolean("isWritablePrimary"))) {
+				if (System.currentTimeMillis() > deadline) {
+					throw new IllegalStateException("El replica set embebido no ha elegido primario");
+				}
+				Thread.sleep(100);
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrumpido esperando al replica set embebido", ex);
+		}
 	}
 
 	public static synchronized void stop() {
@@ -0,0 +1,50 @@
+package utils;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import model.Employee;
+
+/**
+ * Codec BSON de {@link Employee} para la colección users:
+ * {@code {employeeId, name, password}}.
+ */
+public final class EmployeeCodec implements Codec<Employee> {
+
+	@Override
+	public void encode(BsonWriter writer, Employee employee, EncoderContext encoderContext) {
+		writer.writeStartDocument();
+		writer.writeInt32("employeeId", employee.getEmployeeId());
+		writer.writeString("name", employee.getName());
+		writer.writeString("password", employee.getPassword());
+		writer.writeEndDocument();
+	}
+
+	@Override
+	public Employee decode(BsonReader reader, DecoderContext decoderContext) {
+		int employeeId = 0;
+		String name = null;
+		String password = null;
+
+		reader.readStartDocument();
+		while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+			switch (reader.readName()) {
+			case "employeeId" -> employeeId = ProductCodec.readInt(reader);
+			case "name" -> name = ProductCodec.readString(reader);
+			case "password" -> password = ProductCodec.readString(reader);
+			default -> reader.skipValue();
+			}
+		}
+		reader.readEndDocument();
+		return new Employee(employeeId, name, password);
+	}
+
+	@Override
+	public Class<Employee> getEncoderClass() {
+		return Employee.class;
+	}
+}
@@ -1,46 +1,319 @@
 package utils;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hibernate.cfg.Configuration;
+import org.hibernate.Transaction;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Table;
+import org.hibernate.tool.hbm2ddl.SchemaUpdate;
+import org.hibernate.tool.hbm2ddl.SchemaValidator;
+import org.hibernate.tool.schema.TargetType;
 
 /**
  * Inicializa y expone un SessionFactory único para Hibernate.
+ *
+ * El SessionFactory se construye en un hilo aparte la primera vez que se pide
+ * (o antes, con {@link #startBootstrap()}, mientras se muestra el login) y
+ * {@link #getSessionFactory()} espera a que esté listo. Al terminar se imprime
+ * el tiempo de cada fase del arranque.
+ *
+ * El tratamiento del esquema se elige con -Dshop.hibernate.schema:
+ * cached (por defecto) solo ejecuta el update si la huella de los metadatos
+ * mapeados ha cambiado desde el último arranque; update lo ejecuta siempre;
+ * validate solo comprueba el esquema; none no lo toca.
+ *
+ * Con -Dshop.hibernate.cache=true activa la caché de segundo nivel (Ehcache en
+ * memoria vía JCache) para Product y Employee y la caché de consultas. Cada
+ * región admite shop.hibernate.cacheSize entradas (10000 por defecto) que caducan
+ * a los shop.hibernate.cacheTtlSeconds segundos (300 por defecto).
  */
 public final class HibernateUtil {
 
-	private static final SessionFactory SESSION_FACTORY = buildSessionFactory();
+	/** Regiones de caché declaradas en las entidades con @Cache */
+	public static final String PRODUCT_REGION = "shop.product";
+	public static final String EMPLOYEE_REGION = "shop.employee";
+
+	private static final boolean CACHE_ENABLED = Boolean.getBoolean("shop.hibernate.cache");
+	private static final int CACHE_SIZE = Integer.getInteger("shop.hibernate.cacheSize", 10_000);
+	private static final int CACHE_TTL_SECONDS = Integer.getInteger("shop.hibernate.cacheTtlSeconds", 300);
+
+	private static final String SCHEMA_MODE = System.getProperty("shop.hibernate.schema", "cached")
+			.trim().toLowerCase();
+
+	/** Huella de los metadatos con la que se actualizó el esquema por última vez */
+	private static final Path FINGERPRINT_FILE = Paths
+			.get(System.getProperty("shop.hibernate.schemaFingerprintFile", "files/hibernate-schema.sha256"));
+
+	/** Fallback útil cuando src/main/resources no está en el classpath (sin Maven) */
+	private static final String FALLBACK_CONFIG = "src/main/resources/hibernate.cfg.xml";
+
+	private static CompletableFuture<SessionFactory> bootstrap;
+	private static volatile String bootstrapReport;
 
 	private HibernateUtil() {
 	}
 
+	/**
+	 * Lanza la construcción del SessionFactory en segundo plano si aún no se ha lanzado.
+	 *
+	 * @return arranque en curso o terminado
+	 */
+	public static synchronized CompletableFuture<SessionFactory> startBootstrap() {
+		if (bootstrap == null) {
+			bootstrap = CompletableFuture.supplyAsync(HibernateUtil::buildSessionFactory, task -> {
+				Thread thread = new Thread(task, "hibernate-bootstrap");
+				thread.setDaemon(true);
+				thread.start();
+			});
+		}
+		return bootstrap;
+	}
+
+	/**
+	 * Devuelve el SessionFactory, esperando a que termine el arranque si sigue en curso.
+	 *
+	 * @throws IllegalStateException si Hibernate no se ha podido inicializar
+	 */
 	public static SessionFactory getSessionFactory() {
-		return SESSION_FACTORY;
+		try {
+			return startBootstrap().join();
+		} catch (CompletionException ex) {
+			if (ex.getCause() instanceof IllegalStateException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException("Error inicializando Hibernate", ex.getCause());
+		}
+	}
+
+	/**
+	 * @return tiempos de cada fase del arranque, o null si aún no ha terminado
+	 */
+	public static String getBootstrapReport() {
+		return bootstrapReport;
 	}
 
 	public static void shutdown() {
-		if (SESSION_FACTORY != null) {
-			SESSION_FACTORY.close();
+		CompletableFuture<SessionFactory> current;
+		synchronized (HibernateUtil.class) {
+			current = bootstrap;
+		}
+		if (current != null && current.isDone() && !current.isCompletedExceptionally()) {
+			current.join().close();
 		}
 	}
 
 	private static SessionFactory buildSessionFactory() {
+		StandardServiceRegistry registry = null;
 		try {
+			long start = System.nanoTime();
 			// Carga configuración desde hibernate.cfg.xml
-			Configuration configuration;
+			StandardServiceRegistryBuilder registryBuilder = new StandardServiceRegistryBuilder();
 			try {
-				configuration = new Configuration().configure();
+				registryBuilder.configure();
 			} catch (Exception ex) {
-				// Fallback útil cuando src/main/resources no está en el classpath (sin Maven)
-				configuration = new Configuration().configure(new File("src/main/resources/hibernate.cfg.xml"));
+				registryBuilder = new StandardServiceRegistryBuilder()
+						.configure(new File(FALLBACK_CONFIG).toURI().toURL());
+			}
+			// El esquema se trata aquí de forma explícita según SCHEMA_MODE
+			registryBuilder.applySetting("hibernate.hbm2ddl.auto", "none");
+			if (CACHE_ENABLED) {
+				configureSecondLevelCache(registryBuilder);
 			}
-			SessionFactory sessionFactory = configuration.buildSessionFactory();
+			registry = registryBuilder.build();
+			long configured = System.nanoTime();
+
+			Metadata metadata = new MetadataSources(registry).buildMetadata();
+			long mapped = System.nanoTime();
+
+			String schemaAction = prepareSchema(metadata, registry);
+			long schemaReady = System.nanoTime();
+
+			SessionFactory sessionFactory = metadata.getSessionFactoryBuilder().build();
+			seedHistoryIds(sessionFactory);
+			long built = System.nanoTime();
+
+			bootstrapReport = "Arranque Hibernate: configuracion " + millis(start, configured) + " ms, metadatos "
+					+ millis(configured, mapped) + " ms, esquema " + schemaAction + " " + millis(mapped, schemaReady)
+					+ " ms, SessionFactory " + millis(schemaReady, built) + " ms (total " + millis(start, built)
+					+ " ms)";
+			System.out.println(bootstrapReport);
 
 			Runtime.getRuntime().addShutdownHook(new Thread(HibernateUtil::shutdown));
 			return sessionFactory;
 		} catch (Exception ex) {
-			throw new ExceptionInInitializerError("Error inicializando Hibernate: " + ex.getMessage());
+			if (registry != null) {
+				StandardServiceRegistryBuilder.destroy(registry);
+			}
+			throw new IllegalStateException("Error inicializando Hibernate: " + ex.getMessage(), ex);
 		}
 	}
+
+	/**
+	 * Aplica el modo de esquema configurado.
+	 *
+	 * @return descripción de lo que se ha hecho, para el informe de arranque
+	 */
+	private static String prepareSchema(Metadata metadata, StandardServiceRegistry registry) throws IOException {
+		switch (SCHEMA_MODE) {
+		case "none":
+			return "omitido";
+		case "validate":
+			new SchemaValidator().validate(metadata);
+			return "validado";
+		case "update":
+			updateSchema(metadata);
+			writeFingerprint(fingerprint(metadata, registry));
+			return "actualizado";
+		default:
+			String fingerprint = fingerprint(metadata, registry);
+			if (fingerprint.equals(readFingerprint())) {
+				return "sin cambios";
+			}
+			updateSchema(metadata);
+			writeFingerprint(fingerprint);
+			return "actualizado";
+		}
+	}
+
+	/**
+	 * Deja el contador de ids de historical_inventory por encima del mayor id
+	 * existente antes de que el TableGenerator reparta ningún bloque: si falta la
+	 * fila, Hibernate la crearía empezando en 1.
+	 */
+	private static void seedHistoryIds(SessionFactory sessionFactory) {
+		try (Session session = sessionFactory.openSession()) {
+			Transaction tx = session.beginTransaction();
+			try {
+				session.doWork(HistoryIdGenerator::seed);
+				tx.commit();
+			} catch (RuntimeException ex) {
+				tx.rollback();
+				System.err.println("No se ha podido preparar el contador de ids del histórico: " + ex.getMessage());
+				ex.printStackTrace();
+			}
+		}
+	}
+
+	private static void updateSchema(Metadata metadata) {
+		new SchemaUpdate().setHaltOnError(true).execute(EnumSet.of(TargetType.DATABASE), metadata);
+	}
+
+	/**
+	 * Huella SHA-256 de las tablas y columnas mapeadas y de la URL de conexión:
+	 * cambia cuando cambia algo que el update del esquema tendría que aplicar.
+	 */
+	private static String fingerprint(Metadata metadata, StandardServiceRegistry registry) {
+		List<Table> tables = new ArrayList<>(metadata.collectTableMappings());
+		tables.sort(Comparator.comparing(Table::getName));
+		StringBuilder description = new StringBuilder();
+		description.append(registry.getService(ConfigurationService.class).getSettings()
+				.get("hibernate.connection.url")).append('\n');
+		for (Table table : tables) {
+			description.append(table.getName()).append(':');
+			Iterator<Column> columns = table.getColumnIterator();
+			while (columns.hasNext()) {
+				Column column = columns.next();
+				description.append(' ').append(column.getName()).append('/').append(column.getSqlType())
+						.append('/').append(column.getLength()).append('/').append(column.getPrecision())
+						.append('/').append(column.getScale()).append('/').append(column.isNullable())
+						.append('/').append(column.isUnique());
+			}
+			description.append('\n');
+		}
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(description.toString().getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException("SHA-256 no disponible", ex);
+		}
+	}
+
+	private static String readFingerprint() {
+		try {
+			return Files.readString(FINGERPRINT_FILE, StandardCharsets.UTF_8).trim();
+		} catch (IOException ex) {
+			return null;
+		}
+	}
+
+	private static void writeFingerprint(String fingerprint) throws IOException {
+		Path parent = FINGERPRINT_FILE.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		Files.writeString(FINGERPRINT_FILE, fingerprint, StandardCharsets.UTF_8);
+	}
+
+	private static long millis(long from, long to) {
+		return (to - from) / 1_000_000;
+	}
+
+	public static boolean isCacheEnabled() {
+		return CACHE_ENABLED;
+	}
+
+	/**
+	 * Crea las regiones con su tamaño y caducidad y se las entrega a Hibernate a
+	 * través de un CacheManager ya configurado. La región de marcas de tiempo no
+	 * caduca: es la que invalida las consultas cacheadas cuando cambia una tabla.
+	 */
+	private static void configureSecondLevelCache(StandardServiceRegistryBuilder registryBuilder) {
+		CacheManager cacheManager = Caching.getCachingProvider("org.ehcache.jsr107.EhcacheCachingProvider")
+				.getCacheManager();
+		for (String region : new String[] { PRODUCT_REGION, EMPLOYEE_REGION,
+				RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME }) {
+			if (cacheManager.getCache(region) == null) {
+				cacheManager.createCache(region, Eh107Configuration.fromEhcacheCacheConfiguration(
+						CacheConfigurationBuilder
+								.newCacheConfigurationBuilder(Object.class, Object.class,
+										ResourcePoolsBuilder.heap(CACHE_SIZE))
+								.withExpiry(ExpiryPolicyBuilder
+										.timeToLiveExpiration(Duration.ofSeconds(CACHE_TTL_SECONDS)))));
+			}
+		}
+		String timestamps = RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME;
+		if (cacheManager.getCache(timestamps) == null) {
+			cacheManager.createCache(timestamps, Eh107Configuration.fromEhcacheCacheConfiguration(
+					CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+							ResourcePoolsBuilder.heap(CACHE_SIZE))));
+		}
+
+		registryBuilder.applySetting("hibernate.cache.use_second_level_cache", "true");
+		registryBuilder.applySetting("hibernate.cache.use_query_cache", "true");
+		registryBuilder.applySetting("hibernate.cache.region.factory_class", "jcache");
+		registryBuilder.applySetting("hibernate.javax.cache.missing_cache_strategy", "fail");
+		registryBuilder.applySetting("hibernate.generate_statistics", "true");
+		registryBuilder.applySetting("hibernate.javax.cache.cache_manager", cacheManager);
+	}
 }
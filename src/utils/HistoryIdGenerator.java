@@ -0,0 +1,92 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+
+import model.ProductHistory;
+
+/**
+ * Contador de ids de historical_inventory en la tabla id_generators, compartido
+ * por Hibernate (TableGenerator de {@link ProductHistory}) y por el DAO JDBC.
+ *
+ * Sigue el mismo convenio que el optimizador pooled de Hibernate: el valor
+ * guardado es el último id del siguiente bloque de ID_ALLOCATION_SIZE ids y
+ * cada reserva lo avanza. Así los bloques que reparten Hibernate y JDBC nunca se
+ * solapan.
+ */
+public final class HistoryIdGenerator {
+
+	private static final int ALLOCATION_SIZE = ProductHistory.ID_ALLOCATION_SIZE;
+
+	private static final String NEXT_FREE_BLOCK_END = "(SELECT COALESCE(MAX(id), 0) + " + ALLOCATION_SIZE
+			+ " FROM historical_inventory)";
+
+	private HistoryIdGenerator() {
+	}
+
+	/**
+	 * Crea la fila del contador si no existe y la adelanta si hay filas con ids
+	 * posteriores (por ejemplo, insertadas antes de usar el contador). Recorre
+	 * MAX(id) del histórico, así que se ejecuta una sola vez y en su propia
+	 * transacción: en el arranque de Hibernate y en la primera exportación de
+	 * cada DAO JDBC, nunca dentro de una reserva.
+	 *
+	 * @param connection conexión; el cambio se confirma con su transacción
+	 * @throws SQLException si las tablas no existen o falla la consulta
+	 */
+	public static void seed(Connection connection) throws SQLException {
+		try (PreparedStatement update = connection.prepareStatement("UPDATE id_generators SET next_val = "
+				+ NEXT_FREE_BLOCK_END + " WHERE name = ? AND next_val < " + NEXT_FREE_BLOCK_END)) {
+			update.setString(1, ProductHistory.ID_GENERATOR_KEY);
+			if (update.executeUpdate() > 0) {
+				return;
+			}
+		}
+		try (PreparedStatement insert = connection.prepareStatement(
+				"INSERT INTO id_generators (name, next_val) SELECT ?, seed.next_val FROM (SELECT COALESCE(MAX(id), 0) + "
+						+ ALLOCATION_SIZE + " AS next_val FROM historical_inventory) seed"
+						+ " WHERE NOT EXISTS (SELECT 1 FROM id_generators WHERE name = ?)")) {
+			insert.setString(1, ProductHistory.ID_GENERATOR_KEY);
+			insert.setString(2, ProductHistory.ID_GENERATOR_KEY);
+			insert.executeUpdate();
+		} catch (SQLIntegrityConstraintViolationException ex) {
+			// otro proceso ha creado la fila a la vez
+		}
+	}
+
+	/**
+	 * Reserva ids consecutivos para {@code count} filas, en bloques completos.
+	 * Solo toca la fila del contador, que queda bloqueada hasta que termina la
+	 * transacción; el contador tiene que haberse preparado antes con
+	 * {@link #seed(Connection)}.
+	 *
+	 * @param connection conexión con la transacción de la exportación
+	 * @param count filas que se van a insertar
+	 * @return el primer id reservado
+	 * @throws SQLException si no se puede reservar
+	 */
+	public static int reserve(Connection connection, int count) throws SQLException {
+		int blocks = Math.max(1, (count + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE);
+		try (PreparedStatement update = connection
+				.prepareStatement("UPDATE id_generators SET next_val = next_val + ? WHERE name = ?")) {
+			update.setInt(1, blocks * ALLOCATION_SIZE);
+			update.setString(2, ProductHistory.ID_GENERATOR_KEY);
+			if (update.executeUpdate() == 0) {
+				throw new SQLException("No existe el contador " + ProductHistory.ID_GENERATOR_KEY + " en id_generators");
+			}
+		}
+		try (PreparedStatement select = connection
+				.prepareStatement("SELECT next_val FROM id_generators WHERE name = ?")) {
+			select.setString(1, ProductHistory.ID_GENERATOR_KEY);
+			try (ResultSet rs = select.executeQuery()) {
+				rs.next();
+				// el valor leído antes de avanzar era el último id del primer bloque
+				long firstBlockEnd = rs.getLong(1) - (long) blocks * ALLOCATION_SIZE;
+				return (int) (firstBlockEnd - ALLOCATION_SIZE + 1);
+			}
+		}
+	}
+}
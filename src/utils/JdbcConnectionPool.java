@@ -0,0 +1,413 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool acotado de conexiones JDBC.
+ *
+ * Reutiliza conexiones físicas entre operaciones en lugar de abrir una nueva con
+ * DriverManager en cada llamada. Limita el número de conexiones abiertas (maxSize),
+ * valida cada conexión al prestarla y cierra las que llevan demasiado tiempo
+ * inactivas por encima del mínimo (minSize).
+ *
+ * Configuración por propiedades del sistema:
+ * shop.jdbc.url, shop.jdbc.user, shop.jdbc.password,
+ * shop.jdbc.pool.minSize, shop.jdbc.pool.maxSize,
+ * shop.jdbc.pool.idleTimeoutMs, shop.jdbc.pool.borrowTimeoutMs,
+ * shop.jdbc.statementCacheSize (sentencias preparadas cacheadas por conexión)
+ */
+public final class JdbcConnectionPool implements AutoCloseable {
+
+	private static final int DEFAULT_MIN_SIZE = 0;
+	private static final int DEFAULT_MAX_SIZE = 10;
+	private static final long DEFAULT_IDLE_TIMEOUT_MS = 60_000;
+	private static final long DEFAULT_BORROW_TIMEOUT_MS = 5_000;
+	private static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+
+	/** Tiempo de validación máximo de Connection.isValid, en segundos */
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	/** Conexiones usadas hace menos de este tiempo se prestan sin validar contra el servidor */
+	private static final long VALIDATION_BYPASS_MS = 500;
+
+	/** Pools compartidos por URL y usuario */
+	private static final Map<String, JdbcConnectionPool> SHARED_POOLS = new HashMap<>();
+	private static boolean shutdownHookRegistered;
+
+	private final String url;
+	private final String user;
+	private final String password;
+	private final int minSize;
+	private final int maxSize;
+	private final long idleTimeoutMillis;
+	private final long borrowTimeoutMillis;
+	private final int statementCacheSize;
+
+	/** Conexiones libres; se presta primero la más reciente (LIFO) */
+	private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+
+	/** Un permiso por conexión que se puede prestar */
+	private final Semaphore permits;
+
+	private final ScheduledExecutorService evictor;
+
+	/** Conexiones físicas abiertas (libres + prestadas) */
+	private int openCount;
+	private volatile boolean closed;
+
+	/** Totales de la caché de sentencias de las conexiones ya devueltas al pool */
+	private final LongAdder statementHits = new LongAdder();
+	private final LongAdder statementMisses = new LongAdder();
+
+	public JdbcConnectionPool(String url, String user, String password, int minSize, int maxSize,
+			long idleTimeoutMillis, long borrowTimeoutMillis) {
+		this(url, user, password, minSize, maxSize, idleTimeoutMillis, borrowTimeoutMillis,
+				Integer.getInteger("shop.jdbc.statementCacheSize", DEFAULT_STATEMENT_CACHE_SIZE));
+	}
+
+	public JdbcConnectionPool(String url, String user, String password, int minSize, int maxSize,
+			long idleTimeoutMillis, long borrowTimeoutMillis, int statementCacheSize) {
+		if (maxSize <= 0 || minSize < 0 || minSize > maxSize) {
+			throw new IllegalArgumentException("Tamaño de pool no valido: min=" + minSize + ", max=" + maxSize);
+		}
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.borrowTimeoutMillis = borrowTimeoutMillis;
+		this.statementCacheSize = statementCacheSize;
+		this.permits = new Semaphore(maxSize, true);
+		this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "jdbc-pool-evictor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = Math.max(idleTimeoutMillis / 2, 1_000);
+		this.evictor.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Devuelve el pool compartido para la URL y credenciales configuradas en las
+	 * propiedades del sistema, usando los valores indicados cuando no hay propiedad.
+	 */
+	public static synchronized JdbcConnectionPool shared(String defaultUrl, String defaultUser,
+			String defaultPassword) {
+		String url = System.getProperty("shop.jdbc.url", defaultUrl);
+		String user = System.getProperty("shop.jdbc.user", defaultUser);
+		String password = System.getProperty("shop.jdbc.password", defaultPassword);
+		String key = user + "@" + url;
+
+		JdbcConnectionPool pool = SHARED_POOLS.get(key);
+		if (pool == null || pool.closed) {
+			pool = new JdbcConnectionPool(url, user, password,
+					Integer.getInteger("shop.jdbc.pool.minSize", DEFAULT_MIN_SIZE),
+					Integer.getInteger("shop.jdbc.pool.maxSize", DEFAULT_MAX_SIZE),
+					Long.getLong("shop.jdbc.pool.idleTimeoutMs", DEFAULT_IDLE_TIMEOUT_MS),
+					Long.getLong("shop.jdbc.pool.borrowTimeoutMs", DEFAULT_BORROW_TIMEOUT_MS));
+			SHARED_POOLS.put(key, pool);
+		}
+		if (!shutdownHookRegistered) {
+			Runtime.getRuntime().addShutdownHook(new Thread(JdbcConnectionPool::shutdownShared));
+			shutdownHookRegistered = true;
+		}
+		return pool;
+	}
+
+	/**
+	 * Cierra todos los pools compartidos.
+	 */
+	public static synchronized void shutdownShared() {
+		for (JdbcConnectionPool pool : SHARED_POOLS.values()) {
+			pool.close();
+		}
+		SHARED_POOLS.clear();
+	}
+
+	/**
+	 * Presta una conexión del pool, abriendo una nueva si no hay libres y no se ha
+	 * alcanzado maxSize. Espera como máximo borrowTimeoutMillis a que se libere una.
+	 *
+	 * @return conexión prestada, que debe devolverse con {@link #release(PooledConnection)}
+	 * @throws SQLException si no se puede abrir conexión o se agota la espera
+	 */
+	public PooledConnection borrow() throws SQLException {
+		if (closed) {
+			throw new SQLException("El pool de conexiones esta cerrado");
+		}
+		try {
+			if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new SQLTimeoutException("No hay conexiones libres tras " + borrowTimeoutMillis + " ms");
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrumpido esperando una conexion", ex);
+		}
+
+		try {
+			while (true) {
+				PooledConnection pooled;
+				synchronized (this) {
+					pooled = idle.pollFirst();
+				}
+				if (pooled == null) {
+					return open();
+				}
+				if (isUsable(pooled)) {
+					return pooled;
+				}
+				discard(pooled);
+			}
+		} catch (SQLException | RuntimeException ex) {
+			permits.release();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Devuelve una conexión al pool. Deshace cualquier transacción pendiente y
+	 * restaura el autocommit para que el siguiente uso empiece limpio.
+	 *
+	 * @param pooled conexión prestada (se ignora si es null)
+	 */
+	public void release(PooledConnection pooled) {
+		if (pooled == null) {
+			return;
+		}
+		try {
+			Connection connection = pooled.getConnection();
+			collectStatementStats(pooled);
+			pooled.statementCache.releaseUncached();
+			if (connection.isClosed()) {
+				discard(pooled);
+				return;
+			}
+			if (!connection.getAutoCommit()) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+			synchronized (this) {
+				if (!closed) {
+					pooled.lastUsedMillis = System.currentTimeMillis();
+					idle.addFirst(pooled);
+					return;
+				}
+			}
+			discard(pooled);
+		} catch (SQLException ex) {
+			discard(pooled);
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Cierra las conexiones libres inactivas más de idleTimeoutMillis, manteniendo
+	 * al menos minSize conexiones abiertas.
+	 */
+	public void evictIdle() {
+		long now = System.currentTimeMillis();
+		ArrayDeque<PooledConnection> expired = new ArrayDeque<>();
+		synchronized (this) {
+			Iterator<PooledConnection> iterator = idle.descendingIterator();
+			while (iterator.hasNext() && openCount - expired.size() > minSize) {
+				PooledConnection pooled = iterator.next();
+				if (now - pooled.lastUsedMillis >= idleTimeoutMillis) {
+					iterator.remove();
+					expired.add(pooled);
+				}
+			}
+		}
+		for (PooledConnection pooled : expired) {
+			discard(pooled);
+		}
+	}
+
+	/**
+	 * @return conexiones físicas abiertas (libres y prestadas)
+	 */
+	public synchronized int getOpenCount() {
+		return openCount;
+	}
+
+	/**
+	 * @return conexiones libres en el pool
+	 */
+	public synchronized int getIdleCount() {
+		return idle.size();
+	}
+
+	/**
+	 * @return conexiones prestadas en este momento
+	 */
+	public int getActiveCount() {
+		return maxSize - permits.availablePermits();
+	}
+
+	/**
+	 * @return aciertos de la caché de sentencias en conexiones ya devueltas
+	 */
+	public long getStatementCacheHits() {
+		return statementHits.sum();
+	}
+
+	/**
+	 * @return fallos (sentencias preparadas de nuevo) en conexiones ya devueltas
+	 */
+	public long getStatementCacheMisses() {
+		return statementMisses.sum();
+	}
+
+	/**
+	 * @return resumen de uso de la caché de sentencias
+	 */
+	public String getStatementCacheReport() {
+		long hits = getStatementCacheHits();
+		long total = hits + getStatementCacheMisses();
+		long ratio = total == 0 ? 0 : hits * 100 / total;
+		return "Cache de sentencias: " + hits + " aciertos de " + total + " (" + ratio + "%), maximo "
+				+ statementCacheSize + " por conexion";
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		evictor.shutdownNow();
+		ArrayDeque<PooledConnection> toClose;
+		synchronized (this) {
+			toClose = new ArrayDeque<>(idle);
+			idle.clear();
+		}
+		for (PooledConnection pooled : toClose) {
+			discard(pooled);
+		}
+	}
+
+	private void maintain() {
+		try {
+			evictIdle();
+			fillToMinimum();
+		} catch (RuntimeException ex) {
+			System.err.println("Error en el mantenimiento del pool JDBC");
+			ex.printStackTrace();
+		}
+	}
+
+	private void fillToMinimum() {
+		while (!closed && getOpenCount() < minSize && permits.tryAcquire()) {
+			try {
+				PooledConnection pooled = open();
+				release(pooled);
+			} catch (SQLException ex) {
+				permits.release();
+				return;
+			}
+		}
+	}
+
+	private PooledConnection open() throws SQLException {
+		Connection connection = DriverManager.getConnection(url, user, password);
+		synchronized (this) {
+			openCount++;
+		}
+		return new PooledConnection(connection, statementCacheSize);
+	}
+
+	private void collectStatementStats(PooledConnection pooled) {
+		StatementCache cache = pooled.statementCache;
+		statementHits.add(cache.getHits() - pooled.reportedHits);
+		statementMisses.add(cache.getMisses() - pooled.reportedMisses);
+		pooled.reportedHits = cache.getHits();
+		pooled.reportedMisses = cache.getMisses();
+	}
+
+	private boolean isUsable(PooledConnection pooled) {
+		try {
+			Connection connection = pooled.getConnection();
+			if (connection.isClosed()) {
+				return false;
+			}
+			if (System.currentTimeMillis() - pooled.lastUsedMillis < VALIDATION_BYPASS_MS) {
+				return true;
+			}
+			return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+		} catch (SQLException ex) {
+			return false;
+		}
+	}
+
+	private void discard(PooledConnection pooled) {
+		synchronized (this) {
+			openCount--;
+		}
+		pooled.statementCache.clear();
+		try {
+			pooled.getConnection().close();
+		} catch (SQLException ex) {
+			// la conexion ya no es utilizable: no hay nada mas que liberar
+		}
+	}
+
+	/**
+	 * Conexión física gestionada por el pool, con su caché de sentencias preparadas.
+	 */
+	public static final class PooledConnection {
+
+		private final Connection connection;
+		private final StatementCache statementCache;
+		private long lastUsedMillis;
+		private long reportedHits;
+		private long reportedMisses;
+
+		private PooledConnection(Connection connection, int statementCacheSize) {
+			this.connection = connection;
+			this.statementCache = new StatementCache(connection, statementCacheSize);
+			this.lastUsedMillis = System.currentTimeMillis();
+		}
+
+		public Connection getConnection() {
+			return connection;
+		}
+
+		/**
+		 * Devuelve una sentencia preparada de la caché de esta conexión.
+		 * La sentencia no debe cerrarse: se reutiliza en la siguiente llamada.
+		 */
+		public PreparedStatement prepareStatement(String sql) throws SQLException {
+			return statementCache.prepare(sql, false);
+		}
+
+		/**
+		 * Como {@link #prepareStatement(String)}, para sentencias que devuelven claves generadas.
+		 */
+		public PreparedStatement prepareStatementReturningKeys(String sql) throws SQLException {
+			return statementCache.prepare(sql, true);
+		}
+
+		public StatementCache getStatementCache() {
+			return statementCache;
+		}
+	}
+}
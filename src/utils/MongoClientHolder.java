@@ -0,0 +1,91 @@
+package utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bson.Document;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Mantiene un MongoClient (con su pool de conexiones) por cadena de conexion,
+ * compartido por todo el proceso.
+ *
+ * Cada cliente se crea y se verifica con un ping una sola vez; las operaciones del DAO
+ * reutilizan sus conexiones en lugar de abrir y cerrar un cliente por llamada.
+ * Si cambia la cadena de conexion configurada (por ejemplo, entre pruebas) se abre
+ * otro cliente, pero el anterior no se cierra: otros hilos pueden seguir usandolo.
+ * Todos se cierran en {@link #shutdown()}.
+ */
+public final class MongoClientHolder {
+
+	private static final Map<String, MongoClient> CLIENTS = new HashMap<>();
+	private static boolean shutdownHookRegistered;
+
+	private MongoClientHolder() {
+	}
+
+	/**
+	 * Devuelve la base de datos configurada usando el cliente compartido de su cadena
+	 * de conexion. La primera llamada para cada cadena crea el cliente y, si no hay
+	 * servidor local, arranca el embebido.
+	 */
+	public static synchronized MongoDatabase getDatabase() {
+		String connectionString = MongoSupport.getConnectionString();
+		MongoClient client = CLIENTS.get(connectionString);
+		if (client == null) {
+			client = openClient();
+			CLIENTS.put(connectionString, client);
+			registerShutdownHook();
+		}
+		return client.getDatabase(MongoSupport.getDatabaseName());
+	}
+
+	/**
+	 * Cierra todos los clientes compartidos y libera sus pools de conexiones.
+	 */
+	public static synchronized void shutdown() {
+		for (MongoClient client : CLIENTS.values()) {
+			try {
+				client.close();
+			} catch (RuntimeException ex) {
+				System.err.println("Error cerrando el cliente de MongoDB: " + ex.getMessage());
+			}
+		}
+		CLIENTS.clear();
+	}
+
+	private static MongoClient openClient() {
+		MongoClient candidate = MongoSupport.createClient();
+		try {
+			ping(candidate);
+			return candidate;
+		} catch (Exception ex) {
+			candidate.close();
+			if (MongoSupport.isEmbeddedFallbackEnabled() && MongoSupport.isLocalConnection()) {
+				EmbeddedMongoServer.ensureStarted(MongoSupport.getConnectionString());
+				MongoClient fallback = MongoSupport.createClient();
+				try {
+					ping(fallback);
+				} catch (RuntimeException fallbackEx) {
+					fallback.close();
+					throw fallbackEx;
+				}
+				return fallback;
+			}
+			throw ex;
+		}
+	}
+
+	private static void ping(MongoClient candidate) {
+		candidate.getDatabase(MongoSupport.getDatabaseName()).runCommand(new Document("ping", 1));
+	}
+
+	private static void registerShutdownHook() {
+		if (!shutdownHookRegistered) {
+			Runtime.getRuntime().addShutdownHook(new Thread(MongoClientHolder::shutdown));
+			shutdownHookRegistered = true;
+		}
+	}
+}
@@ -1,10 +1,17 @@
 package utils;
 
+import static com.mongodb.client.model.Filters.eq;
 import static com.mongodb.client.model.Indexes.ascending;
+import static com.mongodb.client.model.Projections.include;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
 
 import com.mongodb.ConnectionString;
 import com.mongodb.MongoClientSettings;
@@ -12,7 +19,10 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CollationStrength;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.ReplaceOptions;
 
 /**
  * Utilidades compartidas para la persistencia en MongoDB.
@@ -21,11 +31,47 @@ public final class MongoSupport {
 
 	public static final String INVENTORY_COLLECTION = "inventory";
 	public static final String HISTORY_COLLECTION = "historical_inventory";
+	public static final String HISTORY_BUCKETS_COLLECTION = "historical_inventory_buckets";
 	public static final String USERS_COLLECTION = "users";
+	public static final String COUNTERS_COLLECTION = "counters";
+	public static final String METADATA_COLLECTION = "metadata";
+
+	/** Versión del esquema (índices y datos iniciales); subirla fuerza a reinicializar */
+	public static final int SCHEMA_VERSION = 3;
+
+	/**
+	 * Colación del índice por nombre: fuerza 2 compara sin distinguir mayúsculas
+	 * (sí acentos). Las consultas deben usar la misma colación para aprovecharlo.
+	 */
+	public static final Collation NAME_COLLATION = Collation.builder()
+			.locale("es")
+			.collationStrength(CollationStrength.SECONDARY)
+			.build();
+
+	/** Histórico con un documento por producto (formato original) */
+	public static final String HISTORY_MODE_DOCUMENTS = "documents";
+
+	/** Histórico con un documento por cada bloque de productos de una instantánea */
+	public static final String HISTORY_MODE_BUCKETS = "buckets";
+
+	private static final int DEFAULT_HISTORY_BUCKET_SIZE = 1000;
+
+	private static final String SCHEMA_DOCUMENT_ID = "schema";
 
 	private static final String DEFAULT_CONNECTION = "mongodb://localhost:27017";
 	private static final String DEFAULT_DATABASE = "shop";
-	private static final String DEFAULT_CURRENCY = "\u20ac";
+	static final String DEFAULT_CURRENCY = "\u20ac";
+	private static final int DEFAULT_POOL_MAX_SIZE = 20;
+	private static final int DEFAULT_POOL_MIN_SIZE = 1;
+	private static final long DEFAULT_POOL_MAX_IDLE_SECONDS = 60;
+
+	/** Codecs propios (Product, Employee, instantáneas) por delante de los del driver */
+	private static final CodecRegistry CODEC_REGISTRY = CodecRegistries.fromRegistries(
+			CodecRegistries.fromCodecs(new ProductCodec(), new ProductCodec.SnapshotCodec(), new EmployeeCodec()),
+			MongoClientSettings.getDefaultCodecRegistry());
+
+	/** Bases de datos ya inicializadas en este proceso (cadena de conexión + nombre) */
+	private static final Set<String> INITIALIZED_DATABASES = ConcurrentHashMap.newKeySet();
 
 	private MongoSupport() {
 	}
@@ -35,6 +81,11 @@ public final class MongoSupport {
 		MongoClientSettings settings = MongoClientSettings.builder()
 				.applyConnectionString(connectionString)
 				.applyToClusterSettings(builder -> builder.serverSelectionTimeout(3, java.util.concurrent.TimeUnit.SECONDS))
+				.codecRegistry(CODEC_REGISTRY)
+				.applyToConnectionPoolSettings(builder -> builder
+						.maxSize(getPoolMaxSize())
+						.minSize(getPoolMinSize())
+						.maxConnectionIdleTime(getPoolMaxIdleSeconds(), java.util.concurrent.TimeUnit.SECONDS))
 				.build();
 		return MongoClients.create(settings);
 	}
@@ -47,6 +98,33 @@ public final class MongoSupport {
 		return System.getProperty("shop.mongo.database", DEFAULT_DATABASE);
 	}
 
+	public static int getPoolMaxSize() {
+		return Integer.getInteger("shop.mongo.pool.maxSize", DEFAULT_POOL_MAX_SIZE);
+	}
+
+	public static int getPoolMinSize() {
+		return Integer.getInteger("shop.mongo.pool.minSize", DEFAULT_POOL_MIN_SIZE);
+	}
+
+	public static long getPoolMaxIdleSeconds() {
+		return Long.getLong("shop.mongo.pool.maxIdleSeconds", DEFAULT_POOL_MAX_IDLE_SECONDS);
+	}
+
+	/**
+	 * @return modo de almacenamiento del histórico (-Dshop.mongo.historyMode=documents|buckets)
+	 */
+	public static String getHistoryMode() {
+		String mode = System.getProperty("shop.mongo.historyMode", HISTORY_MODE_DOCUMENTS).trim().toLowerCase();
+		return HISTORY_MODE_BUCKETS.equals(mode) ? HISTORY_MODE_BUCKETS : HISTORY_MODE_DOCUMENTS;
+	}
+
+	/**
+	 * @return productos por documento en el modo buckets (-Dshop.mongo.historyBucketSize)
+	 */
+	public static int getHistoryBucketSize() {
+		return Math.max(1, Integer.getInteger("shop.mongo.historyBucketSize", DEFAULT_HISTORY_BUCKET_SIZE));
+	}
+
 	public static boolean isAutoSeedEnabled() {
 		return Boolean.parseBoolean(System.getProperty("shop.mongo.autoSeed", "true"));
 	}
@@ -64,21 +142,82 @@ public final class MongoSupport {
 		return host.startsWith("localhost") || host.startsWith("127.0.0.1");
 	}
 
+	/**
+	 * Inicializa la base de datos una sola vez por proceso.
+	 * La primera llamada lee el documento de versión de esquema y solo crea índices
+	 * y datos iniciales si falta o es antiguo; las siguientes no hacen ninguna
+	 * petición al servidor.
+	 */
+	public static void ensureInitialized(MongoDatabase database) {
+		String key = getConnectionString() + "/" + database.getName();
+		if (INITIALIZED_DATABASES.contains(key)) {
+			return;
+		}
+		synchronized (INITIALIZED_DATABASES) {
+			if (INITIALIZED_DATABASES.contains(key)) {
+				return;
+			}
+			long start = System.nanoTime();
+			boolean upToDate = isSchemaUpToDate(database);
+			if (!upToDate) {
+				initializeDatabase(database);
+			}
+			INITIALIZED_DATABASES.add(key);
+			long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+			System.out.println("MongoDB " + database.getName() + ": esquema v" + SCHEMA_VERSION
+					+ (upToDate ? " verificado" : " inicializado") + " en " + elapsedMillis + " ms");
+		}
+	}
+
+	/**
+	 * Olvida qué bases de datos se han inicializado, para que la siguiente conexión
+	 * vuelva a verificarlas (por ejemplo, después de borrar la base de datos).
+	 */
+	public static void resetInitialization() {
+		INITIALIZED_DATABASES.clear();
+	}
+
+	/**
+	 * Crea los índices, los datos iniciales (si shop.mongo.autoSeed) y el documento
+	 * de versión de esquema. Es idempotente.
+	 */
 	public static void initializeDatabase(MongoDatabase database) {
 		MongoCollection<Document> inventory = database.getCollection(INVENTORY_COLLECTION);
 		MongoCollection<Document> users = database.getCollection(USERS_COLLECTION);
 
 		inventory.createIndex(ascending("id"), new IndexOptions().unique(true));
+		inventory.createIndex(ascending("name"), new IndexOptions().collation(NAME_COLLATION));
 		users.createIndex(ascending("employeeId"), new IndexOptions().unique(true));
+		database.getCollection(HISTORY_BUCKETS_COLLECTION).createIndex(ascending("snapshotAt", "minId"));
 
 		if (isAutoSeedEnabled()) {
 			seedInventoryIfEmpty(inventory);
 			seedUsersIfEmpty(users);
 		}
+
+		database.getCollection(METADATA_COLLECTION).replaceOne(
+				eq("_id", SCHEMA_DOCUMENT_ID),
+				new Document("_id", SCHEMA_DOCUMENT_ID)
+						.append("version", SCHEMA_VERSION)
+						.append("initializedAt", new Date()),
+				new ReplaceOptions().upsert(true));
+	}
+
+	private static boolean isSchemaUpToDate(MongoDatabase database) {
+		Document schema = database.getCollection(METADATA_COLLECTION).find(eq("_id", SCHEMA_DOCUMENT_ID)).first();
+		if (schema == null) {
+			return false;
+		}
+		Object version = schema.get("version");
+		return version instanceof Number number && number.intValue() >= SCHEMA_VERSION;
+	}
+
+	private static boolean isEmpty(MongoCollection<Document> collection) {
+		return collection.find().projection(include("_id")).first() == null;
 	}
 
 	private static void seedInventoryIfEmpty(MongoCollection<Document> collection) {
-		if (collection.countDocuments() > 0) {
+		if (!isEmpty(collection)) {
 			return;
 		}
 
@@ -92,13 +231,14 @@ public final class MongoSupport {
 	}
 
 	private static void seedUsersIfEmpty(MongoCollection<Document> collection) {
-		if (collection.countDocuments() > 0) {
+		if (!isEmpty(collection)) {
 			return;
 		}
 
 		collection.insertMany(List.of(
 				new Document("employeeId", 1).append("name", "Admin").append("password", "1234"),
 				new Document("employeeId", 123).append("name", "Test").append("password", "test")));
+		CredentialCache.recordEmployeeWrite();
 	}
 
 	public static Document inventoryDocument(int id, String name, double price, boolean available, int stock) {
@@ -109,6 +249,10 @@ public final class MongoSupport {
 				.append("stock", stock);
 	}
 
+	public static String getCurrency() {
+		return DEFAULT_CURRENCY;
+	}
+
 	public static Document priceDocument(double value) {
 		return new Document("value", value).append("currency", DEFAULT_CURRENCY);
 	}
@@ -2,6 +2,8 @@ package utils;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -10,11 +12,33 @@ import javax.persistence.Persistence;
 import model.Employee;
 
 /**
- * Utilidades compartidas para la autenticacion en ObjectDB.
+ * Utilidades compartidas para las bases de datos ObjectDB (usuarios e inventario).
+ *
+ * Mantiene un EntityManagerFactory por proceso sobre la base de usuarios (abrir
+ * el fichero .odb es la parte cara de un login) y un pool de EntityManager
+ * reutilizables. Los usuarios iniciales se siembran una sola vez, al abrir la
+ * factoria. El numero de EntityManager libres que se conservan se configura con
+ * -Dshop.objectdb.poolSize (4 por defecto).
  */
 public final class ObjectDbSupport {
 
 	private static final String DEFAULT_USERS_DB = "objects/users.odb";
+	private static final String DEFAULT_INVENTORY_DB = "objects/inventory.odb";
+
+	private static final int POOL_SIZE = Integer.getInteger("shop.objectdb.poolSize", 4);
+
+	/** Factoria compartida y URL con la que se abrio */
+	private static EntityManagerFactory sharedFactory;
+	private static String sharedFactoryUrl;
+	private static boolean shutdownHookRegistered;
+
+	/** Factoria compartida del inventario (DaoImplObjectDBInventory) y URL con la que se abrio */
+	private static EntityManagerFactory inventoryFactory;
+	private static String inventoryFactoryUrl;
+
+	/** EntityManager libres de la factoria compartida */
+	private static final ConcurrentLinkedDeque<EntityManager> IDLE_MANAGERS = new ConcurrentLinkedDeque<>();
+	private static final AtomicInteger IDLE_COUNT = new AtomicInteger();
 
 	private ObjectDbSupport() {
 	}
@@ -24,15 +48,123 @@ public final class ObjectDbSupport {
 	}
 
 	public static String getUsersDatabaseUrl() {
-		Path dbPath = ensureDatabasePath();
-		String normalized = dbPath.toAbsolutePath().normalize().toString().replace('\\', '/');
-		return "objectdb:" + normalized;
+		return toUrl(ensureDatabasePath(getUsersDatabasePath()));
+	}
+
+	public static String getInventoryDatabasePath() {
+		return System.getProperty("shop.objectdb.inventoryPath", DEFAULT_INVENTORY_DB);
+	}
+
+	public static String getInventoryDatabaseUrl() {
+		return toUrl(ensureDatabasePath(getInventoryDatabasePath()));
+	}
+
+	/**
+	 * Devuelve la factoria compartida de la base de inventario, abriendola la
+	 * primera vez (o si la ruta ha cambiado). Se cierra al terminar el proceso.
+	 */
+	public static synchronized EntityManagerFactory getInventoryEntityManagerFactory() {
+		String url = getInventoryDatabaseUrl();
+		if (inventoryFactory != null && inventoryFactory.isOpen() && url.equals(inventoryFactoryUrl)) {
+			return inventoryFactory;
+		}
+		closeInventoryEntityManagerFactory();
+		inventoryFactory = Persistence.createEntityManagerFactory(url);
+		inventoryFactoryUrl = url;
+		registerShutdownHook();
+		return inventoryFactory;
+	}
+
+	public static synchronized void closeInventoryEntityManagerFactory() {
+		if (inventoryFactory != null && inventoryFactory.isOpen()) {
+			inventoryFactory.close();
+		}
+		inventoryFactory = null;
+		inventoryFactoryUrl = null;
 	}
 
 	public static EntityManagerFactory createEntityManagerFactory() {
 		return Persistence.createEntityManagerFactory(getUsersDatabaseUrl());
 	}
 
+	/**
+	 * Devuelve la factoria compartida, abriendola y sembrando los usuarios la
+	 * primera vez. Si la ruta de la base de datos ha cambiado se reabre.
+	 */
+	public static synchronized EntityManagerFactory getSharedEntityManagerFactory() {
+		String url = getUsersDatabaseUrl();
+		if (sharedFactory != null && sharedFactory.isOpen() && url.equals(sharedFactoryUrl)) {
+			return sharedFactory;
+		}
+		closeSharedEntityManagerFactory();
+
+		EntityManagerFactory factory = Persistence.createEntityManagerFactory(url);
+		EntityManager entityManager = factory.createEntityManager();
+		try {
+			seedUsersIfEmpty(entityManager);
+		} finally {
+			entityManager.close();
+		}
+		sharedFactory = factory;
+		sharedFactoryUrl = url;
+		registerShutdownHook();
+		return factory;
+	}
+
+	/**
+	 * Presta un EntityManager de la factoria compartida. Debe devolverse con
+	 * {@link #releaseEntityManager(EntityManager)}.
+	 */
+	public static EntityManager borrowEntityManager() {
+		EntityManagerFactory factory = getSharedEntityManagerFactory();
+		EntityManager entityManager;
+		while ((entityManager = IDLE_MANAGERS.pollFirst()) != null) {
+			IDLE_COUNT.decrementAndGet();
+			if (entityManager.isOpen() && entityManager.getEntityManagerFactory() == factory) {
+				return entityManager;
+			}
+			closeQuietly(entityManager);
+		}
+		return factory.createEntityManager();
+	}
+
+	/**
+	 * Devuelve un EntityManager al pool tras vaciar su contexto de persistencia,
+	 * de modo que la siguiente consulta vea los datos actuales. Si ya hay
+	 * POOL_SIZE libres se cierra.
+	 */
+	public static void releaseEntityManager(EntityManager entityManager) {
+		if (entityManager == null || !entityManager.isOpen()) {
+			return;
+		}
+		if (entityManager.getTransaction().isActive()) {
+			entityManager.getTransaction().rollback();
+		}
+		entityManager.clear();
+		if (IDLE_COUNT.incrementAndGet() <= POOL_SIZE) {
+			IDLE_MANAGERS.offerFirst(entityManager);
+		} else {
+			IDLE_COUNT.decrementAndGet();
+			closeQuietly(entityManager);
+		}
+	}
+
+	/**
+	 * Cierra los EntityManager libres y la factoria compartida.
+	 */
+	public static synchronized void closeSharedEntityManagerFactory() {
+		EntityManager entityManager;
+		while ((entityManager = IDLE_MANAGERS.pollFirst()) != null) {
+			IDLE_COUNT.decrementAndGet();
+			closeQuietly(entityManager);
+		}
+		if (sharedFactory != null && sharedFactory.isOpen()) {
+			sharedFactory.close();
+		}
+		sharedFactory = null;
+		sharedFactoryUrl = null;
+	}
+
 	public static void seedUsersIfEmpty(EntityManager entityManager) {
 		Employee admin = entityManager.find(Employee.class, 1);
 		if (admin != null) {
@@ -44,6 +176,7 @@ public final class ObjectDbSupport {
 			entityManager.persist(new Employee(1, "Admin", "1234"));
 			entityManager.persist(new Employee(123, "Test", "test"));
 			entityManager.getTransaction().commit();
+			CredentialCache.recordEmployeeWrite();
 		} catch (RuntimeException ex) {
 			if (entityManager.getTransaction().isActive()) {
 				entityManager.getTransaction().rollback();
@@ -52,8 +185,33 @@ public final class ObjectDbSupport {
 		}
 	}
 
-	private static Path ensureDatabasePath() {
-		Path dbPath = Path.of(getUsersDatabasePath());
+	private static void closeQuietly(EntityManager entityManager) {
+		try {
+			if (entityManager.isOpen()) {
+				entityManager.close();
+			}
+		} catch (RuntimeException ex) {
+			// el EntityManager ya no se va a usar: no hay nada mas que liberar
+		}
+	}
+
+	private static synchronized void registerShutdownHook() {
+		if (!shutdownHookRegistered) {
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				closeSharedEntityManagerFactory();
+				closeInventoryEntityManagerFactory();
+			}));
+			shutdownHookRegistered = true;
+		}
+	}
+
+	private static String toUrl(Path dbPath) {
+		String normalized = dbPath.toAbsolutePath().normalize().toString().replace('\\', '/');
+		return "objectdb:" + normalized;
+	}
+
+	private static Path ensureDatabasePath(String path) {
+		Path dbPath = Path.of(path);
 		Path parent = dbPath.getParent();
 		if (parent != null) {
 			try {
@@ -0,0 +1,185 @@
+package utils;
+
+import java.util.Date;
+
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+import model.Product;
+
+/**
+ * Codec BSON de {@link Product} para el backend MongoDB.
+ *
+ * Lee y escribe directamente entre BSON y el producto, sin pasar por un
+ * org.bson.Document intermedio (un LinkedHashMap con cada número en caja).
+ * Mantiene el formato de los documentos existentes:
+ * {@code {id, name, wholesalePrice: {value, currency}, available, stock}}.
+ * Los campos desconocidos (_id, created_at...) se ignoran al leer.
+ */
+public final class ProductCodec implements Codec<Product> {
+
+	@Override
+	public void encode(BsonWriter writer, Product product, EncoderContext encoderContext) {
+		writer.writeStartDocument();
+		writeFields(writer, product);
+		writer.writeEndDocument();
+	}
+
+	@Override
+	public Product decode(BsonReader reader, DecoderContext decoderContext) {
+		return readProduct(reader, null);
+	}
+
+	@Override
+	public Class<Product> getEncoderClass() {
+		return Product.class;
+	}
+
+	/**
+	 * Lee un documento de producto completo.
+	 *
+	 * @param createdAt si no es null, recibe en su primera posición el created_at
+	 *                  del documento en milisegundos (se deja sin tocar si no lo tiene)
+	 */
+	private static Product readProduct(BsonReader reader, long[] createdAt) {
+		int id = 0;
+		String name = null;
+		double price = 0.0;
+		boolean available = true;
+		int stock = 0;
+
+		reader.readStartDocument();
+		while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+			switch (reader.readName()) {
+			case "id" -> id = readInt(reader);
+			case "name" -> name = readString(reader);
+			case "wholesalePrice" -> price = readPrice(reader);
+			case "available" -> available = readBoolean(reader);
+			case "stock" -> stock = readInt(reader);
+			case "created_at" -> {
+				if (createdAt != null && reader.getCurrentBsonType() == BsonType.DATE_TIME) {
+					createdAt[0] = reader.readDateTime();
+				} else {
+					reader.skipValue();
+				}
+			}
+			default -> reader.skipValue();
+			}
+		}
+		reader.readEndDocument();
+		return new Product(id, name, price, available, stock);
+	}
+
+	/**
+	 * Escribe los campos del producto en el documento abierto del writer.
+	 */
+	static void writeFields(BsonWriter writer, Product product) {
+		writer.writeInt32("id", product.getId());
+		if (product.getName() == null) {
+			writer.writeNull("name");
+		} else {
+			writer.writeString("name", product.getName());
+		}
+		writer.writeStartDocument("wholesalePrice");
+		writer.writeDouble("value", product.getPrice());
+		writer.writeString("currency", MongoSupport.DEFAULT_CURRENCY);
+		writer.writeEndDocument();
+		writer.writeBoolean("available", product.isAvailable());
+		writer.writeInt32("stock", product.getStock());
+	}
+
+	/**
+	 * Lee un número entero aceptando los tipos numéricos que puede haber dejado
+	 * otro cliente (int32, int64 o double).
+	 */
+	static int readInt(BsonReader reader) {
+		return switch (reader.getCurrentBsonType()) {
+		case INT32 -> reader.readInt32();
+		case INT64 -> (int) reader.readInt64();
+		case DOUBLE -> (int) reader.readDouble();
+		default -> {
+			reader.skipValue();
+			yield 0;
+		}
+		};
+	}
+
+	static String readString(BsonReader reader) {
+		if (reader.getCurrentBsonType() == BsonType.STRING) {
+			return reader.readString();
+		}
+		reader.skipValue();
+		return null;
+	}
+
+	private static boolean readBoolean(BsonReader reader) {
+		if (reader.getCurrentBsonType() == BsonType.BOOLEAN) {
+			return reader.readBoolean();
+		}
+		reader.skipValue();
+		return true;
+	}
+
+	private static double readPrice(BsonReader reader) {
+		if (reader.getCurrentBsonType() != BsonType.DOCUMENT) {
+			reader.skipValue();
+			return 0.0;
+		}
+		double price = 0.0;
+		reader.readStartDocument();
+		while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+			if ("value".equals(reader.readName())) {
+				price = switch (reader.getCurrentBsonType()) {
+				case DOUBLE -> reader.readDouble();
+				case INT32 -> reader.readInt32();
+				case INT64 -> reader.readInt64();
+				default -> {
+					reader.skipValue();
+					yield 0.0;
+				}
+				};
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.readEndDocument();
+		return price;
+	}
+
+	/**
+	 * Producto exportado a la colección histórica con la fecha de la instantánea.
+	 */
+	public record Snapshot(Product product, Date createdAt) {
+	}
+
+	/**
+	 * Codec de {@link Snapshot}: los campos del producto más created_at.
+	 * Al leer, un documento sin created_at devuelve la instantánea con fecha null.
+	 */
+	public static final class SnapshotCodec implements Codec<Snapshot> {
+
+		@Override
+		public void encode(BsonWriter writer, Snapshot snapshot, EncoderContext encoderContext) {
+			writer.writeStartDocument();
+			writeFields(writer, snapshot.product());
+			writer.writeDateTime("created_at", snapshot.createdAt().getTime());
+			writer.writeEndDocument();
+		}
+
+		@Override
+		public Snapshot decode(BsonReader reader, DecoderContext decoderContext) {
+			long[] createdAt = { Long.MIN_VALUE };
+			Product product = readProduct(reader, createdAt);
+			return new Snapshot(product, createdAt[0] == Long.MIN_VALUE ? null : new Date(createdAt[0]));
+		}
+
+		@Override
+		public Class<Snapshot> getEncoderClass() {
+			return Snapshot.class;
+		}
+	}
+}
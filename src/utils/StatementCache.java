@@ -0,0 +1,145 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caché LRU de sentencias preparadas de una conexión JDBC.
+ *
+ * Las sentencias se indexan por texto SQL (y por si devuelven claves generadas),
+ * de modo que las consultas frecuentes se preparan una sola vez por conexión y
+ * se vuelven a ejecutar. Al superar el tamaño máximo se cierra la sentencia usada
+ * hace más tiempo. Con tamaño 0 la caché queda desactivada: las sentencias se
+ * preparan cada vez y se cierran al devolver la conexión al pool.
+ *
+ * Las sentencias devueltas pertenecen a la caché: quien las usa no debe cerrarlas,
+ * solo sus ResultSet.
+ *
+ * No es thread-safe: cada conexión del pool la usa un único hilo a la vez.
+ */
+public final class StatementCache {
+
+	private final Connection connection;
+	private final int maxSize;
+
+	/** Sentencias por clave, en orden de acceso (la primera es la menos reciente) */
+	private final LinkedHashMap<String, PreparedStatement> statements;
+
+	/** Sentencias preparadas con la caché desactivada, pendientes de cerrar */
+	private final List<PreparedStatement> uncached = new ArrayList<>();
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param connection conexión sobre la que se preparan las sentencias
+	 * @param maxSize número máximo de sentencias abiertas (0 para desactivar)
+	 */
+	public StatementCache(Connection connection, int maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("Tamaño de cache de sentencias no valido: " + maxSize);
+		}
+		this.connection = connection;
+		this.maxSize = maxSize;
+		this.statements = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Devuelve la sentencia preparada para el SQL indicado, preparándola solo si
+	 * no estaba en caché. Los parámetros y el batch de una sentencia reutilizada
+	 * se limpian antes de devolverla.
+	 *
+	 * @param sql texto de la sentencia
+	 * @param returnGeneratedKeys si la sentencia debe devolver claves generadas
+	 * @return sentencia lista para asignar parámetros
+	 * @throws SQLException si el driver no puede preparar la sentencia
+	 */
+	public PreparedStatement prepare(String sql, boolean returnGeneratedKeys) throws SQLException {
+		String key = returnGeneratedKeys ? "K:" + sql : "N:" + sql;
+		PreparedStatement ps = statements.get(key);
+		if (ps != null && !ps.isClosed()) {
+			hits++;
+			ps.clearParameters();
+			ps.clearBatch();
+			return ps;
+		}
+		misses++;
+		ps = returnGeneratedKeys ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+				: connection.prepareStatement(sql);
+		if (maxSize == 0) {
+			uncached.add(ps);
+			return ps;
+		}
+		statements.put(key, ps);
+		evictOverflow();
+		return ps;
+	}
+
+	/**
+	 * Cierra las sentencias preparadas con la caché desactivada.
+	 * Se llama al devolver la conexión al pool.
+	 */
+	public void releaseUncached() {
+		for (PreparedStatement ps : uncached) {
+			closeQuietly(ps);
+		}
+		uncached.clear();
+	}
+
+	/**
+	 * Cierra todas las sentencias, cacheadas o no.
+	 */
+	public void clear() {
+		releaseUncached();
+		for (PreparedStatement ps : statements.values()) {
+			closeQuietly(ps);
+		}
+		statements.clear();
+	}
+
+	public int size() {
+		return statements.size();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	private void evictOverflow() {
+		Iterator<Map.Entry<String, PreparedStatement>> iterator = statements.entrySet().iterator();
+		while (statements.size() > maxSize && iterator.hasNext()) {
+			PreparedStatement eldest = iterator.next().getValue();
+			iterator.remove();
+			closeQuietly(eldest);
+			evictions++;
+		}
+	}
+
+	private static void closeQuietly(PreparedStatement ps) {
+		try {
+			ps.close();
+		} catch (SQLException ex) {
+			// la sentencia ya no se va a usar: no hay nada mas que liberar
+		}
+	}
+}
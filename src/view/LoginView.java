@@ -3,11 +3,14 @@ package view;
 import java.awt.EventQueue;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.UncheckedIOException;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.border.EmptyBorder;
+import dao.DaoFactory;
 import exception.LimitLoginException;
+import main.Logable;
 import model.Employee;
 import utils.Constants;
 
@@ -31,6 +34,8 @@ public class LoginView extends JFrame implements ActionListener{
 	 */
 	public static void main(String[] args) {
 		LookAndFeelUtil.applySystemLookAndFeel();
+		// El DAO se inicializa mientras el empleado introduce sus credenciales
+		DaoFactory.preload();
 		EventQueue.invokeLater(new Runnable() {
 			public void run() {
 				try {
@@ -95,7 +100,7 @@ public class LoginView extends JFrame implements ActionListener{
 		}
 
 		try {
-			boolean logged = createEmployee().login(Integer.parseInt(employeeId), password);
+			boolean logged = createLoginService().login(Integer.parseInt(employeeId), password);
 			if (logged) {
 				openShopView();
 				dispose();
@@ -112,6 +117,11 @@ public class LoginView extends JFrame implements ActionListener{
 		} catch (NumberFormatException ex) {
 			showMessage("El número de empleado debe ser numérico", "Error", JOptionPane.ERROR_MESSAGE);
 			clearLoginForm();
+		} catch (UncheckedIOException ex) {
+			// sin el inventario completo no se abre la tienda, para no guardar una carga parcial
+			ex.printStackTrace();
+			showMessage("No se ha podido cargar el inventario", "Error", JOptionPane.ERROR_MESSAGE);
+			dispose();
 		} catch (LimitLoginException ex) {
 			showMessage("Error login, superados los " + counterErrorLogin + " intentos", "Error",
 					JOptionPane.ERROR_MESSAGE);
@@ -119,8 +129,8 @@ public class LoginView extends JFrame implements ActionListener{
 		}
 	}
 
-	protected Employee createEmployee() {
-		return new Employee();
+	protected Logable createLoginService() {
+		return Employee.getLoginService();
 	}
 
 	protected void openShopView() {
@@ -198,7 +198,11 @@ public class ProductView extends JDialog implements ActionListener {
 							Double.parseDouble(textFieldPrice.getText()),
 							true,
 							Integer.parseInt(textFieldStock.getText()));
-					shop.addProduct(product);
+					if (!shop.addProduct(product)) {
+						JOptionPane.showMessageDialog(null, "No se ha podido añadir el producto ", "Error",
+								JOptionPane.ERROR_MESSAGE);
+						break;
+					}
 					JOptionPane.showMessageDialog(null, "Producto añadido ", "Information",
 							JOptionPane.INFORMATION_MESSAGE);
 					// release current screen
@@ -215,9 +219,11 @@ public class ProductView extends JDialog implements ActionListener {
 					JOptionPane.showMessageDialog(null, "Producto no existe ", "Error",
 							JOptionPane.ERROR_MESSAGE);
 					
-				} else {					
-					product.setStock(product.getStock() + Integer.parseInt(textFieldStock.getText()));
-					shop.updateProduct(product);
+				} else if (!shop.adjustStock(product, Integer.parseInt(textFieldStock.getText()))) {
+					JOptionPane.showMessageDialog(null, "No se ha podido actualizar el stock ", "Error",
+							JOptionPane.ERROR_MESSAGE);
+					
+				} else {
 					JOptionPane.showMessageDialog(null, "Stock actualizado ", "Information",
 							JOptionPane.INFORMATION_MESSAGE);
 					// release current screen